@@ -0,0 +1,233 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking versions of the {@link Db} query methods.  Each method runs the
+ * matching {@link Db} call on the configured {@link Executor} and returns right
+ * away, so a caller can start dozens of lookups and wait for them together,
+ * for example with {@link CompletableFuture#allOf(CompletableFuture...)}.
+ * <p>
+ * The futures complete with exactly what the blocking call would have returned,
+ * including null when the request or the JSON failed.
+ * <p>
+ * By default the calls run on virtual threads when the JVM provides them (Java 21
+ * and later), and on a cached pool of daemon threads otherwise.  Either way the
+ * number of connections actually opened is bounded by the {@link Transport}.
+ */
+public class AsyncDb {
+
+	private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+	private static volatile Executor executor = DEFAULT_EXECUTOR;
+
+	/* Make this class un-instantiatable. */
+	private AsyncDb() {
+
+	}
+
+	/**
+	 * Replace the executor every query is run on.
+	 * 
+	 * @param e The new executor, or null to go back to the default one.
+	 */
+	public static void setExecutor(Executor e) {
+		executor = e == null ? DEFAULT_EXECUTOR : e;
+	}
+
+	/**
+	 * @return The executor queries are currently run on.
+	 */
+	public static Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @see Db#getCardFromUrl(String)
+	 */
+	public static CompletableFuture<Card> getCardFromUrl(final String url) {
+		return CompletableFuture.supplyAsync(() -> Db.getCardFromUrl(url), executor);
+	}
+
+	/**
+	 * @see Db#getSetFromUrl(String)
+	 */
+	public static CompletableFuture<CardSet> getSetFromUrl(final String url) {
+		return CompletableFuture.supplyAsync(() -> Db.getSetFromUrl(url), executor);
+	}
+
+	/**
+	 * @see Db#getCardsFromUrl(String)
+	 */
+	public static CompletableFuture<List<Card>> getCardsFromUrl(final String url) {
+		return CompletableFuture.supplyAsync(() -> Db.getCardsFromUrl(url), executor);
+	}
+
+	/**
+	 * @see Db#getRandom(String)
+	 */
+	public static CompletableFuture<Card> getRandom(final String setId) {
+		return CompletableFuture.supplyAsync(() -> Db.getRandom(setId), executor);
+	}
+
+	/**
+	 * @see Db#getRandom()
+	 */
+	public static CompletableFuture<Card> getRandom() {
+		return getRandom(null);
+	}
+
+	/**
+	 * @see Db#getCard(int)
+	 */
+	public static CompletableFuture<Card> getCard(final int id) {
+		return CompletableFuture.supplyAsync(() -> Db.getCard(id), executor);
+	}
+
+	/**
+	 * @see Db#getCardsByComplexQuery(ComplexQuery)
+	 */
+	public static CompletableFuture<List<Card>> getCardsByComplexQuery(final ComplexQuery cq) {
+		return CompletableFuture.supplyAsync(() -> Db.getCardsByComplexQuery(cq), executor);
+	}
+
+	/**
+	 * @see Db#getCardWithinSet(String, int)
+	 */
+	public static CompletableFuture<Card> getCardWithinSet(final String set, final int id) {
+		return CompletableFuture.supplyAsync(() -> Db.getCardWithinSet(set, id), executor);
+	}
+
+	/**
+	 * @see Db#getSet(String)
+	 */
+	public static CompletableFuture<CardSet> getSet(final String setId) {
+		return CompletableFuture.supplyAsync(() -> Db.getSet(setId), executor);
+	}
+
+	/**
+	 * @see Db#getSets(ArrayList)
+	 */
+	public static CompletableFuture<List<CardSet>> getSets(final ArrayList<String> ids) {
+		return CompletableFuture.supplyAsync(() -> Db.getSets(ids), executor);
+	}
+
+	/**
+	 * @see Db#getAllSets()
+	 */
+	public static CompletableFuture<List<CardSet>> getAllSets() {
+		return CompletableFuture.supplyAsync(() -> Db.getAllSets(), executor);
+	}
+
+	/**
+	 * @see Db#getCards(ArrayList)
+	 */
+	public static CompletableFuture<List<Card>> getCards(final ArrayList<Integer> multiverseIds) {
+		return CompletableFuture.supplyAsync(() -> Db.getCards(multiverseIds), executor);
+	}
+
+	/**
+	 * @see Db#getSetCards(String, int, int)
+	 */
+	public static CompletableFuture<List<Card>> getSetCards(final String setId, final int start, final int end) {
+		return CompletableFuture.supplyAsync(() -> Db.getSetCards(setId, start, end), executor);
+	}
+
+	/**
+	 * @see Db#getCards(String)
+	 */
+	public static CompletableFuture<List<Card>> getCards(final String name) {
+		return CompletableFuture.supplyAsync(() -> Db.getCards(name), executor);
+	}
+
+	/**
+	 * @see Db#getSetCards(String)
+	 */
+	public static CompletableFuture<List<Card>> getSetCards(final String setName) {
+		return CompletableFuture.supplyAsync(() -> Db.getSetCards(setName), executor);
+	}
+
+	/**
+	 * @see Db#getCards(Set)
+	 */
+	public static CompletableFuture<List<Card>> getCards(final Set<String> fields) {
+		return CompletableFuture.supplyAsync(() -> Db.getCards(fields), executor);
+	}
+
+	/**
+	 * @see Db#searchCards(String)
+	 */
+	public static CompletableFuture<List<Card>> searchCards(final String searchText) {
+		return CompletableFuture.supplyAsync(() -> Db.searchCards(searchText), executor);
+	}
+
+	/**
+	 * @see Db#getCards()
+	 */
+	public static CompletableFuture<List<Card>> getCards() {
+		return CompletableFuture.supplyAsync(() -> Db.getCards(), executor);
+	}
+
+	/**
+	 * @see Db#filterCards(HashMap)
+	 */
+	public static CompletableFuture<List<Card>> filterCards(final HashMap<String, String> filters) {
+		return CompletableFuture.supplyAsync(() -> Db.filterCards(filters), executor);
+	}
+
+	/* Virtual threads if this JVM has them, otherwise a cached pool of daemon threads.
+	 * Looked up reflectively so the library still runs on Java 8.
+	 */
+	private static Executor createDefaultExecutor() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) m.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			/* Not available, fall through. */
+		} catch (RuntimeException e) {
+			/* Preview feature disabled or similar, fall through. */
+		}
+
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "mtgdb-async-"+count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
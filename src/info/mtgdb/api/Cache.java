@@ -0,0 +1,255 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded in-memory cache with least-recently-used eviction and an optional time
+ * to live, used by {@link Db} to avoid fetching the same cards and sets again:
+ * 
+ * <pre>
+ * Db.setCardCache(new Cache&lt;String, Card&gt;(10000, 1, TimeUnit.HOURS));
+ * </pre>
+ * 
+ * The entries are spread over a number of stripes by the hash of their key, each an
+ * access-ordered map with its own lock, so threads looking up different keys rarely
+ * wait for each other.  Each stripe holds an equal share of the maximum size, give
+ * or take one entry, and evicts its own least recently used entry when full, which
+ * approximates LRU over the whole cache closely when keys hash evenly.  The shares
+ * add up to exactly the maximum size.
+ * <p>
+ * Hits, misses, evictions (for size) and expirations are counted, and the counts
+ * can be read at any time without locking.  Null values are not cached.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class Cache<K, V> {
+
+	private static final int MAX_STRIPES = 16;
+
+	private final Stripe<K, V>[] stripes;
+	private final int mask;
+	private final long ttlNanos;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * @param maxSize The most entries to keep.
+	 * @param ttl How long an entry is kept after it was put, or 0 to keep it until evicted.
+	 * @param unit The unit of ttl.
+	 */
+	@SuppressWarnings("unchecked")
+	public Cache(int maxSize, long ttl, TimeUnit unit) {
+		if( maxSize <= 0 ) throw new IllegalArgumentException("The maximum size must be positive.");
+		if( ttl < 0 ) throw new IllegalArgumentException("The time to live can not be negative.");
+		/* A power of two, and no more stripes than entries. */
+		int count = Math.min(MAX_STRIPES, Integer.highestOneBit(maxSize));
+		this.stripes = (Stripe<K, V>[]) new Stripe<?, ?>[count];
+		/* The first maxSize % count stripes take one extra entry, so the shares add up to maxSize. */
+		for( int i = 0; i < count; i++ ) stripes[i] = new Stripe<K, V>(maxSize / count + (i < maxSize % count ? 1 : 0));
+		this.mask = count - 1;
+		this.ttlNanos = unit.toNanos(ttl);
+	}
+
+	/**
+	 * @param maxSize The most entries to keep.  They don't expire.
+	 */
+	public Cache(int maxSize) {
+		this(maxSize, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/* A cached value and when it expires. */
+	private static final class Item<V> {
+		final V value;
+		final long expiresAt;
+
+		Item(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Stripe<K, V> extends LinkedHashMap<K, Item<V>> {
+		final int capacity;
+		/* Set by removeEldestEntry(), read by put() under the same lock. */
+		boolean evicted;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Item<V>> eldest) {
+			evicted = size() > capacity;
+			return evicted;
+		}
+	}
+
+	private Stripe<K, V> stripe(Object key) {
+		int h = key.hashCode();
+		/* Spread the high bits down, as HashMap does, since only the low ones pick a stripe. */
+		h ^= (h >>> 16);
+		return stripes[h & mask];
+	}
+
+	/**
+	 * @param key The key.
+	 * @return The cached value, or null if there is none or it has expired.
+	 */
+	public V get(K key) {
+		Stripe<K, V> s = stripe(key);
+		synchronized( s ) {
+			Item<V> e = s.get(key);
+			if( e == null ) {
+				misses.increment();
+				return null;
+			}
+			if( ttlNanos > 0 && System.nanoTime() - e.expiresAt > 0 ) {
+				s.remove(key);
+				expirations.increment();
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return e.value;
+		}
+	}
+
+	/**
+	 * @param key The key.
+	 * @param value The value to cache.  Null removes the key instead.
+	 */
+	public void put(K key, V value) {
+		if( value == null ) {
+			invalidate(key);
+			return;
+		}
+		Item<V> e = new Item<V>(value, ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0);
+		Stripe<K, V> s = stripe(key);
+		synchronized( s ) {
+			s.evicted = false;
+			s.put(key, e);
+			if( s.evicted ) evictions.increment();
+		}
+	}
+
+	/**
+	 * @param key The key to remove.
+	 */
+	public void invalidate(K key) {
+		Stripe<K, V> s = stripe(key);
+		synchronized( s ) {
+			s.remove(key);
+		}
+	}
+
+	/**
+	 * Remove every entry.  The counters are not reset.
+	 */
+	public void clear() {
+		for( Stripe<K, V> s : stripes ) {
+			synchronized( s ) {
+				s.clear();
+			}
+		}
+	}
+
+	/**
+	 * Remove the entries that have expired, which otherwise happens only when they are
+	 * looked up or pushed out by newer entries.
+	 */
+	public void cleanUp() {
+		if( ttlNanos == 0 ) return;
+		long now = System.nanoTime();
+		for( Stripe<K, V> s : stripes ) {
+			synchronized( s ) {
+				for( Iterator<Item<V>> it = s.values().iterator(); it.hasNext(); ) {
+					if( now - it.next().expiresAt > 0 ) {
+						it.remove();
+						expirations.increment();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of entries, including any that have expired but not been
+	 * removed yet.
+	 */
+	public int size() {
+		int size = 0;
+		for( Stripe<K, V> s : stripes ) {
+			synchronized( s ) {
+				size += s.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return The number of lookups that found a value.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return The number of lookups that didn't find a value, expired ones included.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return The number of entries removed to make room for others.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return The number of entries removed because their time to live had passed.
+	 */
+	public long getExpirationCount() {
+		return expirations.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "Cache[size="+size()+", hits="+getHitCount()+", misses="+getMissCount()+", evictions="+getEvictionCount()+", expirations="+getExpirationCount()+"]";
+	}
+}
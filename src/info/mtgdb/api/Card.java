@@ -24,13 +24,12 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
 THE SOFTWARE.
 */
 
-import java.lang.reflect.Field;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.json.*;
@@ -66,43 +65,30 @@ public class Card {
 	public static String DATE_VALUE_NOT_SET = "Date not set.";
 	
 	/*
-	 * This static HashMap will be checked upon instantiation of any Card object.
-	 * If it is null, it will be populated as a map from the field name to an
-	 * instance of CardField.  This will ease the computational burden of checking
-	 * the JSON keys.  Instead of a series of String matching 'if' statements, we
-	 * will be able to use reflection and access the fields.  Since it is a static
-	 * HashMap, it should be populated more often than not within your running
-	 * code.  We can think of it as doing the 'if' statements for field names just
-	 * once rather than everytime we create a new Card from JSON.
+	 * This static map goes from each JSON key (the field name, and the field name in
+	 * lower case) to a FieldBinder.  This will ease the computational burden of
+	 * checking the JSON keys.  Instead of a series of String matching 'if' statements,
+	 * each binder already knows how to read its field's type and stores the value
+	 * through a MethodHandle.  We can think of it as doing the 'if' statements for
+	 * field names just once rather than everytime we create a new Card from JSON.
+	 * 
+	 * The map is built while the Card class is initialized and can't be modified
+	 * afterwards, so every thread sees it complete and Cards can be built in
+	 * parallel without any locking.
 	 * 
 	 * If any future fields are added to the API, they should be added to this class
 	 * with the SAME NAME as the web service API JSON response.  If those fields are
-	 * ints or Strings, nothing else needs to be done.  If they are arrays, then a
-	 * little more work needs to be done.  Use the existing arrays (rulings, for example)
-	 * to help writing new array processing code.
+	 * ints, booleans, Strings or Lists of a type FieldBinder already knows about,
+	 * nothing else needs to be done.  Otherwise add a new FieldBinder.Kind for them.
 	 */
-	private static HashMap<String, CardField> memberTypeHash = null;
+	private static final Map<String, FieldBinder> memberTypeHash =
+			Collections.unmodifiableMap(FieldBinder.forClass(MethodHandles.lookup(), true));
 	
-	/* Formatters for dates.  If the format of the date from the web service API changes,
-	 * then dateFormatterInput should be adjusted accordingly.
-	 */
-	private final SimpleDateFormat dateFormatterInput  = new SimpleDateFormat(Dates.dateFormatInput);
-	private final SimpleDateFormat dateFormatterOutput = new SimpleDateFormat(Dates.dateFormatOutput);
-
-	/* Used in reflection to access data members by name when processing JSON. */
-	private class CardField {
-		Field f;
-		//String name;
-		String type;
-	}
-
 	/**
 	 * Creates new Card object with default values.
 	 */
 	public Card() {
-		if( memberTypeHash == null ) {
-			createMemberTypeHash();
-		}
+
 	}
 
 	/**
@@ -117,82 +103,45 @@ public class Card {
 		@SuppressWarnings("unchecked")
 		Set<String> set = json.keySet();
 		for( String s : set ) {
-			CardField cardField = memberTypeHash.get(s.toLowerCase());
-			if( cardField != null) {
-				//System.out.println(s+" is a "+cardField.type);
-				try {
-					if( cardField.type.matches("int") ) {
-						int val = json.getInt(s);
-						cardField.f.set(this, val);
-					}
-					else if( cardField.type.matches("boolean") ) {
-						boolean val = json.getBoolean(s);
-						cardField.f.set(this, val);
-					}
-					else if( cardField.type.matches("java.lang.String") ) {
-						Object o = json.get(s);
-						if( o != JSONObject.NULL ) cardField.f.set(this, (String) o);
-						else continue;
-					}
-					else if( cardField.type.matches("java.util.Date") ) {
-						Object o = json.get(s);
-						if( o == null ) {cardField.f.set(this, null); continue;}
-						Date date = dateFormatterInput.parse((String) o);							
-						cardField.f.set(this, date);
-					}
-					else if( cardField.type.matches("java.util.List") ) {
-						JSONArray jsonArray = json.getJSONArray(s);
-						if( s.matches("colors") ) {
-							colors = new ArrayList<String>();
-							for( int i = 0; i < jsonArray.length(); i++ ) {
-								colors.add(jsonArray.getString(i));
-							}
-						}
-						else if( s.matches("rulings") ) {
-							rulings = new ArrayList<Ruling>();
-							for( int i = 0; i < jsonArray.length(); i++ ) {
-								Ruling r = new Ruling(jsonArray.getJSONObject(i));
-								rulings.add(r);
-							}
-						}
-						else if( s.matches("formats") ) {
-							formats = new ArrayList<Format>();
-							for( int i = 0; i < jsonArray.length(); i++ ) {
-								Format f = new Format(jsonArray.getJSONObject(i));
-								formats.add(f);
-							}
-						}		
-					}
-				} catch (IllegalArgumentException e) {
-					e.printStackTrace();
-				} catch (IllegalAccessException e) {
-					e.printStackTrace();
-				/*} catch (ParseException e) {
-					e.printStackTrace();
-					System.err.println("s = "+s);
-					System.err.println("CardField = "+cardField.type);*/
-				} catch (Exception e) {
-					e.printStackTrace();
-					System.err.println("s = "+s);
-					System.err.println("CardField = "+cardField.type);
-				}
-			}
+			FieldBinder binder = binderFor(s);
+			if( binder != null ) binder.bind(this, json, s);
 			//else System.out.println(s+" wasn't found.");
 		}
+		deriveFields();
 	}
-	
-	/* Populates the static HashMap of field values. */
-	private void createMemberTypeHash() {
-		memberTypeHash = new HashMap<String, CardField>();
-		Field[] fields = getClass().getDeclaredFields();
-		for( Field f : fields ) {
-			CardField cf = new CardField();
-			cf.type = f.getType().getCanonicalName();
-			cf.f = f;
-			memberTypeHash.put(f.getName().toLowerCase(), cf);
+
+	/**
+	 * Construct a Card by reading its JSON object directly from a tokener, without
+	 * building a {@link JSONObject} first.  The tokener is left just past the
+	 * object's closing brace, so this can be called once per element while walking
+	 * an array of cards.
+	 * 
+	 * @param x A {@link JSONTokener} positioned at the start of a Card's JSON object.
+	 * @throws JSONException If the text is not a JSON object.
+	 */
+	public Card(JSONTokener x) {
+		this();
+		TokenReader.beginObject(x);
+		for( String s = TokenReader.nextKey(x); s != null; s = TokenReader.nextKey(x) ) {
+			FieldBinder binder = binderFor(s);
+			if( binder != null ) binder.bind(this, x);
+			else TokenReader.skipValue(x);
 		}
+		deriveFields();
 	}
 
+	/* Works out the transient fields from the ones just read. */
+	private void deriveFields() {
+		colorMask = Color.mask(colors);
+		parsedManaCost = ManaCost.parse(manaCost);
+	}
+
+	/* JSON keys normally match the field names exactly; fall back to ignoring case. */
+	private static FieldBinder binderFor(String key) {
+		FieldBinder binder = memberTypeHash.get(key);
+		return binder != null ? binder : memberTypeHash.get(key.toLowerCase());
+	}
+	
 	private int id					= INT_VALUE_NOT_SET;
 	private int relatedCardId		= INT_VALUE_NOT_SET;
 	private int setNumber			= INT_VALUE_NOT_SET;	
@@ -217,7 +166,14 @@ public class Card {
 	private List<Ruling> rulings	= null;
 	private List<Format> formats	= null;
 
-	private String releasedAt			= null;
+	/* The colors list as a Color mask, kept up to date by the constructors and setColors(). */
+	private transient int colorMask	= 0;
+	/* The mana cost parsed by ManaCost, kept up to date by the constructors and setManaCost(). */
+	private transient long parsedManaCost = ManaCost.NOT_SET;
+
+	/* Days since 1970-01-01, see Dates. */
+	@FieldBinder.EpochDay
+	private int releasedAt				= Dates.EPOCH_DAY_NOT_SET;
 	
 	private boolean token			= false;
 
@@ -225,14 +181,14 @@ public class Card {
 	 * @return String of the URL to retrieve this Card object's image.
 	 */
 	public String getCardImageUrl() {
-		return "https://api.mtgdb.info/content/card_images/"+id+".jpeg";
+		return "https://api.mtgdb.info/content/card_images/"+getId()+".jpeg";
 	}
 
 	/**
 	 * @return String of the URL to retrieve this Card object's image in high resolution.
 	 */
 	public String getHiResImageUrl() {
-		return "https://api.mtgdb.info/content/hi_res_card_images/"+id+".jpg";
+		return "https://api.mtgdb.info/content/hi_res_card_images/"+getId()+".jpg";
 	}
 
 	/**
@@ -345,6 +301,33 @@ public class Card {
 	 */
 	public void setColors(List<String> colors) {
 		this.colors = colors;
+		this.colorMask = Color.mask(colors);
+	}
+
+	/**
+	 * The colors of this Card with one bit per {@link Color}, as of when the colors
+	 * were read or last set with {@link #setColors(List)}.  Names in the colors list
+	 * that aren't one of the five colors have no bit.
+	 * 
+	 * @return int color mask.
+	 */
+	public int getColorMask() {
+		return colorMask;
+	}
+
+	/**
+	 * @param color A color.
+	 * @return true if this Card is that color.
+	 */
+	public boolean hasColor(Color color) {
+		return (getColorMask() & color.getBit()) != 0;
+	}
+
+	/**
+	 * @return EnumSet<Color> of the colors of this Card.
+	 */
+	public EnumSet<Color> getColorSet() {
+		return Color.fromMask(getColorMask());
 	}
 
 	/**
@@ -361,6 +344,17 @@ public class Card {
 	 */
 	public void setManaCost(String manaCost) {
 		this.manaCost = manaCost;
+		this.parsedManaCost = ManaCost.parse(manaCost);
+	}
+
+	/**
+	 * The mana cost parsed into the packed form read by the {@link ManaCost} methods,
+	 * as of when it was read or last set with {@link #setManaCost(String)}.
+	 * 
+	 * @return long parsed mana cost, or {@link ManaCost#NOT_SET}.
+	 */
+	public long getParsedManaCost() {
+		return parsedManaCost;
 	}
 
 	/**
@@ -538,26 +532,53 @@ public class Card {
 	}
 
 	/**
-	 * @return String release date for this Card as a String.
+	 * The release date is kept as a day, so this is that day printed as yyyy-MM-dd
+	 * rather than the text it was read from.  The web service sends a time of day as
+	 * well (such as "1994-06-01T00:00:00", which reads back as "1994-06-01"), and text
+	 * that isn't a date reads back as null.
+	 * 
+	 * @return String release date for this Card as a String, or null if it is not set.
 	 */
 	public String getReleasedAt() {
-		return releasedAt;
+		return Dates.format(getReleasedAtEpochDay());
 	}
 	
 	/**
 	 * @return String release date as a formatted string.
 	 */
 	public String getReleasedAtString() {
-		if( releasedAt == null ) return DATE_VALUE_NOT_SET;
+		int epochDay = getReleasedAtEpochDay();
+		if( epochDay == Dates.EPOCH_DAY_NOT_SET ) return DATE_VALUE_NOT_SET;
 		
-		return dateFormatterOutput.format(releasedAt);
+		return Dates.format(epochDay);
 	}
 
 	/**
-	 * @param releasedAt
+	 * @param releasedAt A date in the web service API's format.
 	 */
 	public void setReleasedAt(String releasedAt) {
-		this.releasedAt = releasedAt;
+		this.releasedAt = Dates.parseEpochDay(releasedAt);
+	}
+
+	/**
+	 * @return The release date as a {@link LocalDate}, or null if it is not set.
+	 */
+	public LocalDate getReleasedAtDate() {
+		return Dates.toLocalDate(getReleasedAtEpochDay());
+	}
+
+	/**
+	 * @return The release date in days since 1970-01-01, or {@link Dates#EPOCH_DAY_NOT_SET}.
+	 */
+	public int getReleasedAtEpochDay() {
+		return releasedAt;
+	}
+
+	/**
+	 * @param epochDay Days since 1970-01-01, or {@link Dates#EPOCH_DAY_NOT_SET}.
+	 */
+	public void setReleasedAtEpochDay(int epochDay) {
+		this.releasedAt = epochDay;
 	}
 
 	/**
@@ -0,0 +1,217 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns many single-card lookups into a few multi-card requests.  Each
+ * {@link #load(int)} joins the current batch; the batch is sent as one
+ * {@link Db#getCards(ArrayList)} request, or {@link Db#getCard(int)} for a lone id, once it reaches the size cap or once the
+ * window since its first lookup has passed, whichever comes first, and each
+ * lookup's future completes with its own card:
+ * 
+ * <pre>
+ * CardBatchLoader loader = new CardBatchLoader();
+ * List&lt;CompletableFuture&lt;Card&gt;&gt; cards = new ArrayList&lt;...&gt;();
+ * for( int id : deckList ) cards.add(loader.load(id));  // One or two requests in total.
+ * </pre>
+ * 
+ * A lookup of an id that is already in the current batch shares its future.  As
+ * with {@link AsyncDb}, futures complete with null when the card wasn't returned or
+ * the request failed, and requests run on {@link AsyncDb#getExecutor()} unless
+ * another executor is given.  A loader is safe to share between threads.
+ */
+public class CardBatchLoader {
+
+	/**
+	 * The default time a batch waits for more lookups, in milliseconds.
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 5;
+	/**
+	 * The default most ids per request.
+	 */
+	public static final int DEFAULT_MAX_BATCH = 100;
+
+	/* One daemon thread, shared by every loader, that sends batches whose window has passed. */
+	private static final class Timer {
+		static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "mtgdb-batch-timer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	private final long windowNanos;
+	private final int maxBatch;
+	private final Executor executor;
+
+	/* The lookups waiting to be sent, by id, in the order they arrived.  Guarded by this. */
+	private LinkedHashMap<Integer, CompletableFuture<Card>> pending = new LinkedHashMap<Integer, CompletableFuture<Card>>();
+
+	/**
+	 * A loader with a {@value #DEFAULT_WINDOW_MILLIS} ms window and at most
+	 * {@value #DEFAULT_MAX_BATCH} ids per request.
+	 */
+	public CardBatchLoader() {
+		this(DEFAULT_WINDOW_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAX_BATCH);
+	}
+
+	/**
+	 * @param window How long a batch waits for more lookups after its first.
+	 * @param unit The unit of window.
+	 * @param maxBatch The most ids to send in one request.
+	 */
+	public CardBatchLoader(long window, TimeUnit unit, int maxBatch) {
+		this(window, unit, maxBatch, null);
+	}
+
+	/**
+	 * @param window How long a batch waits for more lookups after its first.
+	 * @param unit The unit of window.
+	 * @param maxBatch The most ids to send in one request.
+	 * @param executor What to run the requests on, or null for {@link AsyncDb#getExecutor()}.
+	 */
+	public CardBatchLoader(long window, TimeUnit unit, int maxBatch, Executor executor) {
+		if( window < 0 ) throw new IllegalArgumentException("The window can not be negative.");
+		if( maxBatch <= 0 ) throw new IllegalArgumentException("The batch size must be positive.");
+		this.windowNanos = unit.toNanos(window);
+		this.maxBatch = maxBatch;
+		this.executor = executor;
+	}
+
+	/**
+	 * @param id A multiverse id.
+	 * @return A future that completes with the card, or with null if it couldn't be fetched.
+	 */
+	public CompletableFuture<Card> load(int id) {
+		Map<Integer, CompletableFuture<Card>> full = null;
+		Map<Integer, CompletableFuture<Card>> started = null;
+		CompletableFuture<Card> future;
+		synchronized( this ) {
+			future = pending.get(id);
+			if( future != null ) return future;
+			future = new CompletableFuture<Card>();
+			if( pending.isEmpty() ) started = pending;
+			pending.put(id, future);
+			if( pending.size() >= maxBatch ) full = takePending();
+		}
+		if( full != null ) {
+			send(full);
+		}
+		else if( started != null ) {
+			final Map<Integer, CompletableFuture<Card>> batch = started;
+			Timer.INSTANCE.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+		}
+		return future;
+	}
+
+	/**
+	 * @param ids Multiverse ids.
+	 * @return A future that completes with the cards in the order of the ids, with
+	 * null for any that couldn't be fetched.
+	 */
+	public CompletableFuture<List<Card>> loadAll(Collection<Integer> ids) {
+		final ArrayList<CompletableFuture<Card>> futures = new ArrayList<CompletableFuture<Card>>(ids.size());
+		for( int id : ids ) futures.add(load(id));
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v -> {
+			ArrayList<Card> cards = new ArrayList<Card>(futures.size());
+			for( CompletableFuture<Card> f : futures ) cards.add(f.join());
+			return cards;
+		});
+	}
+
+	/**
+	 * Send the current batch now rather than waiting for its window to pass.
+	 */
+	public void flush() {
+		Map<Integer, CompletableFuture<Card>> batch;
+		synchronized( this ) {
+			if( pending.isEmpty() ) return;
+			batch = takePending();
+		}
+		send(batch);
+	}
+
+	/* Sends a batch if it is still the pending one; it may already have been sent for being full. */
+	private void flush(Map<Integer, CompletableFuture<Card>> batch) {
+		synchronized( this ) {
+			if( pending != batch || pending.isEmpty() ) return;
+			takePending();
+		}
+		send(batch);
+	}
+
+	/* Must hold the lock. */
+	private Map<Integer, CompletableFuture<Card>> takePending() {
+		Map<Integer, CompletableFuture<Card>> batch = pending;
+		pending = new LinkedHashMap<Integer, CompletableFuture<Card>>();
+		return batch;
+	}
+
+	private void send(final Map<Integer, CompletableFuture<Card>> batch) {
+		Executor e = executor != null ? executor : AsyncDb.getExecutor();
+		try {
+			e.execute(() -> fetch(batch));
+		} catch (RuntimeException ex) {
+			for( CompletableFuture<Card> f : batch.values() ) f.completeExceptionally(ex);
+		}
+	}
+
+	private static void fetch(Map<Integer, CompletableFuture<Card>> batch) {
+		try {
+			/* The API answers a single id with a card rather than a list. */
+			if( batch.size() == 1 ) {
+				Map.Entry<Integer, CompletableFuture<Card>> only = batch.entrySet().iterator().next();
+				only.getValue().complete(Db.getCard(only.getKey()));
+				return;
+			}
+			ArrayList<Card> cards = Db.getCards(new ArrayList<Integer>(batch.keySet()));
+			HashMap<Integer, Card> byId = new HashMap<Integer, Card>();
+			if( cards != null ) {
+				for( Card c : cards ) byId.put(c.getId(), c);
+			}
+			for( Map.Entry<Integer, CompletableFuture<Card>> entry : batch.entrySet() ) {
+				entry.getValue().complete(byId.get(entry.getKey()));
+			}
+		} catch (RuntimeException | Error e) {
+			for( CompletableFuture<Card> f : batch.values() ) f.completeExceptionally(e);
+			throw e;
+		}
+	}
+}
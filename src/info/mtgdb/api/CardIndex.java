@@ -0,0 +1,344 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import info.mtgdb.api.QueryElement.Field;
+import info.mtgdb.api.QueryElement.Operator;
+
+/**
+ * Bitmap indexes over the low-cardinality fields of a fixed list of cards: colors,
+ * rarity, type, subtype, set id and whether the card is a token.  For each distinct
+ * value the index keeps the set of cards that have it, so a filter such as "blue
+ * rare creatures" is the intersection of three precomputed bitmaps rather than a
+ * scan over every card.
+ * <p>
+ * Converted mana cost, power, toughness and loyalty have sorted range indexes
+ * instead, so "power at least 5" is two binary searches.  Cards whose value is
+ * {@link Card#INT_VALUE_NOT_SET} are not in these indexes and never match.
+ * <p>
+ * Name, type, rules text and flavor text are also indexed word by word in a
+ * {@link TextIndex}, available from {@link #getTextIndex()}.
+ * <p>
+ * Cards are identified by their ordinal, their position in the list the index was
+ * built from, and lookups return a {@link BitSet} of ordinals which the caller owns
+ * and may combine freely.  Values are matched case-insensitively; a text field that
+ * is not set is indexed under the empty string.
+ * <p>
+ * {@link QueryEngine} uses this index automatically.  It is immutable once built and
+ * safe to share between threads.
+ */
+public class CardIndex {
+
+	private final List<Card> cards;
+	private final Map<String, Postings> colors;
+	private final Map<String, Postings> rarities;
+	private final Map<String, Postings> types;
+	private final Map<String, Postings> subTypes;
+	private final Map<String, Postings> setIds;
+	private final Postings tokens;
+	private final RangeIndex convertedManaCosts;
+	private final RangeIndex powers;
+	private final RangeIndex toughnesses;
+	private final RangeIndex loyalties;
+	private final TextIndex text;
+
+	/**
+	 * @param cards The cards to index.  They are copied, so later changes to the
+	 * collection are not seen.
+	 */
+	public CardIndex(Collection<Card> cards) {
+		this.cards = Collections.unmodifiableList(new ArrayList<Card>(cards));
+		int n = this.cards.size();
+
+		HashMap<String, BitSet> colorBits = new HashMap<String, BitSet>();
+		HashMap<String, BitSet> rarityBits = new HashMap<String, BitSet>();
+		HashMap<String, BitSet> typeBits = new HashMap<String, BitSet>();
+		HashMap<String, BitSet> subTypeBits = new HashMap<String, BitSet>();
+		HashMap<String, BitSet> setIdBits = new HashMap<String, BitSet>();
+		BitSet tokenBits = new BitSet(n);
+
+		for( int i = 0; i < n; i++ ) {
+			Card c = this.cards.get(i);
+			if( c.getColors() != null ) {
+				for( String color : c.getColors() ) {
+					if( color != null ) add(colorBits, color.toLowerCase(Locale.ROOT), i);
+				}
+			}
+			add(rarityBits, key(c, Field.rarity), i);
+			add(typeBits, key(c, Field.type), i);
+			add(subTypeBits, key(c, Field.subtype), i);
+			add(setIdBits, key(c, Field.setId), i);
+			if( c.isToken() ) tokenBits.set(i);
+		}
+
+		this.colors = compress(colorBits, n);
+		this.rarities = compress(rarityBits, n);
+		this.types = compress(typeBits, n);
+		this.subTypes = compress(subTypeBits, n);
+		this.setIds = compress(setIdBits, n);
+		this.tokens = Postings.of(tokenBits, n);
+
+		this.convertedManaCosts = new RangeIndex(this.cards, Field.convertedmanacost);
+		this.powers = new RangeIndex(this.cards, Field.power);
+		this.toughnesses = new RangeIndex(this.cards, Field.toughness);
+		this.loyalties = new RangeIndex(this.cards, Field.loyalty);
+
+		this.text = new TextIndex(this.cards);
+	}
+
+	/**
+	 * @return The number of cards indexed.
+	 */
+	public int size() {
+		return cards.size();
+	}
+
+	/**
+	 * @param ordinal A card's position in the indexed list.
+	 * @return The card.
+	 */
+	public Card get(int ordinal) {
+		return cards.get(ordinal);
+	}
+
+	/**
+	 * @return The indexed cards, in ordinal order.
+	 */
+	public List<Card> getCards() {
+		return cards;
+	}
+
+	/**
+	 * @param ordinals A set of ordinals, such as one returned by a lookup.
+	 * @return The cards, in ordinal order.
+	 */
+	public ArrayList<Card> getCards(BitSet ordinals) {
+		ArrayList<Card> result = new ArrayList<Card>(ordinals.cardinality());
+		for( int i = ordinals.nextSetBit(0); i >= 0 && i < cards.size(); i = ordinals.nextSetBit(i + 1) ) {
+			result.add(cards.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return The cards that have the color, for example "blue".
+	 */
+	public BitSet withColor(String color) {
+		return lookup(colors, color);
+	}
+
+	public BitSet withRarity(String rarity) {
+		return lookup(rarities, rarity);
+	}
+
+	public BitSet withType(String type) {
+		return lookup(types, type);
+	}
+
+	public BitSet withSubType(String subType) {
+		return lookup(subTypes, subType);
+	}
+
+	public BitSet withCardSetId(String cardSetId) {
+		return lookup(setIds, cardSetId);
+	}
+
+	/**
+	 * @return The cards that are tokens, or that are not.
+	 */
+	public BitSet tokens(boolean token) {
+		BitSet b = tokens.toBitSet();
+		if( !token ) b.flip(0, cards.size());
+		return b;
+	}
+
+	/**
+	 * @return The full-text index over the same cards, with the same ordinals.
+	 */
+	public TextIndex getTextIndex() {
+		return text;
+	}
+
+	/**
+	 * @param field One of convertedmanacost, power, toughness or loyalty.
+	 * @param min The smallest value to match.
+	 * @param max The largest value to match.
+	 * @return The cards whose value of the field is in [min, max].
+	 */
+	public BitSet range(Field field, int min, int max) {
+		RangeIndex r = rangeIndex(field);
+		if( r == null ) throw new IllegalArgumentException(field+" is not a number field.");
+		return r.range(min, max);
+	}
+
+	private RangeIndex rangeIndex(Field field) {
+		switch( field ) {
+		case convertedmanacost:
+			return convertedManaCosts;
+		case power:
+			return powers;
+		case toughness:
+			return toughnesses;
+		case loyalty:
+			return loyalties;
+		default:
+			return null;
+		}
+	}
+
+	/* Numeric elements, answered from the range index for the field. */
+	private static BitSet evaluateRange(RangeIndex r, QueryElement qe) {
+		int v;
+		if( qe.getValueString() == null ) {
+			v = qe.getValueInt();
+		}
+		else {
+			try {
+				v = Integer.parseInt(QueryEngine.unquote(qe.getValueString()).trim());
+			} catch (NumberFormatException e) {
+				return new BitSet();
+			}
+		}
+		switch( qe.getOperator() ) {
+		case m:
+		case eq:
+			return r.range(v, v);
+		case not:
+			BitSet b = r.present();
+			b.andNot(r.range(v, v));
+			return b;
+		case gt:
+			return v == Integer.MAX_VALUE ? new BitSet() : r.range(v + 1, Integer.MAX_VALUE);
+		case gte:
+			return r.range(v, Integer.MAX_VALUE);
+		case lt:
+			return v == Integer.MIN_VALUE ? new BitSet() : r.range(Integer.MIN_VALUE, v - 1);
+		case lte:
+			return r.range(Integer.MIN_VALUE, v);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Answers a query element from the index alone, if it can be.
+	 * 
+	 * @return The matching ordinals, or null if the element isn't on an indexed field
+	 * or uses an operator the index can't answer.
+	 */
+	BitSet evaluate(QueryElement qe) {
+		RangeIndex r = rangeIndex(qe.getField());
+		if( r != null ) return evaluateRange(r, qe);
+
+		Map<String, Postings> values;
+		switch( qe.getField() ) {
+		case color:
+			values = colors;
+			break;
+		case rarity:
+			values = rarities;
+			break;
+		case type:
+			values = types;
+			break;
+		case subtype:
+			values = subTypes;
+			break;
+		case setId:
+			values = setIds;
+			break;
+		default:
+			return null;
+		}
+
+		String raw = qe.getValueString() == null ? Integer.toString(qe.getValueInt()) : QueryEngine.unquote(qe.getValueString());
+		String value = raw.toLowerCase(Locale.ROOT);
+		Operator op = qe.getOperator();
+		switch( op ) {
+		case eq:
+			return lookup(values, value);
+		case not:
+			BitSet b = lookup(values, value);
+			b.flip(0, cards.size());
+			return b;
+		case m:
+			/* Few enough distinct values that checking each of them is cheap. */
+			BitSet any = new BitSet(cards.size());
+			for( Map.Entry<String, Postings> e : values.entrySet() ) {
+				if( e.getKey().contains(value) ) e.getValue().orInto(any);
+			}
+			return any;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Narrows down the cards that can match a query element the index can't answer
+	 * exactly: <code>m</code> on name, rules text or flavor text.
+	 * 
+	 * @return A superset of the matching ordinals, or null if there is none smaller
+	 * than every card.
+	 */
+	BitSet candidates(QueryElement qe) {
+		if( qe.getOperator() != Operator.m || qe.getValueString() == null ) return null;
+		return text.candidates(qe.getField(), QueryEngine.unquote(qe.getValueString()));
+	}
+
+	private static BitSet lookup(Map<String, Postings> values, String value) {
+		Postings p = values.get(value == null ? "" : value.toLowerCase(Locale.ROOT));
+		return p == null ? new BitSet() : p.toBitSet();
+	}
+
+	private static String key(Card c, Field field) {
+		return QueryEngine.stringValue(c, field).toLowerCase(Locale.ROOT);
+	}
+
+	private static void add(HashMap<String, BitSet> values, String key, int ordinal) {
+		BitSet b = values.get(key);
+		if( b == null ) {
+			b = new BitSet();
+			values.put(key, b);
+		}
+		b.set(ordinal);
+	}
+
+	private static Map<String, Postings> compress(HashMap<String, BitSet> values, int n) {
+		HashMap<String, Postings> result = new HashMap<String, Postings>(values.size() * 2);
+		for( Map.Entry<String, BitSet> e : values.entrySet() ) {
+			result.put(e.getKey(), Postings.of(e.getValue(), n));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+}
@@ -0,0 +1,144 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+import org.json.UTF8Tokener;
+
+/**
+ * Reads a JSON array of cards one element at a time, so only the card being
+ * parsed is ever held in memory rather than the whole response.  This is what
+ * makes it practical to walk the entire database with {@link Db#iterateCards()}.
+ * <p>
+ * The underlying stream is closed once the end of the array is reached, and can be
+ * closed early with {@link #close()}.  Malformed JSON part way through the response
+ * is reported as a {@link JSONException} from {@link #next()}.
+ */
+public class CardIterator implements Iterator<Card>, Closeable {
+
+	private final InputStream in;
+	private final JSONTokener tokener;
+	private boolean done = false;
+
+	/**
+	 * @param in A stream positioned at the start of a JSON array of cards.
+	 * @throws JSONException If the stream does not start with a JSON array or can't
+	 * be read.  The stream is closed before this is thrown.
+	 */
+	public CardIterator(InputStream in) {
+		this.in = in;
+		this.tokener = new UTF8Tokener(in);
+		/* Nobody else can close the stream if this throws, so close it on the way out. */
+		try {
+			if( tokener.nextClean() != '[' ) {
+				throw tokener.syntaxError("A list of cards must begin with '['");
+			}
+			if( tokener.nextClean() == ']' ) {
+				closeQuietly();
+			}
+			else {
+				tokener.back();
+			}
+		} catch (JSONException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	public boolean hasNext() {
+		return !done;
+	}
+
+	public Card next() {
+		if( done ) throw new NoSuchElementException();
+
+		Card card;
+		try {
+			card = new Card(tokener);
+			char c = tokener.nextClean();
+			if( c == ',' ) {
+				/* Tolerate a trailing comma the same way JSONArray does. */
+				if( tokener.nextClean() == ']' ) closeQuietly();
+				else tokener.back();
+			}
+			else if( c == ']' ) {
+				closeQuietly();
+			}
+			else {
+				throw tokener.syntaxError("Expected a ',' or ']'");
+			}
+		} catch (JSONException e) {
+			closeQuietly();
+			throw e;
+		}
+
+		return card;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stop reading and release the underlying stream (and its connection).
+	 */
+	public void close() throws IOException {
+		done = true;
+		in.close();
+	}
+
+	/**
+	 * @return A sequential {@link Stream} over the remaining cards.  Closing the
+	 * stream closes this iterator.
+	 */
+	public Stream<Card> stream() {
+		Spliterator<Card> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			public void run() {
+				closeQuietly();
+			}
+		});
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			System.err.println("Problem closing the card stream.");
+			e.printStackTrace();
+		}
+	}
+}
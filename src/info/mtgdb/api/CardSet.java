@@ -24,17 +24,16 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
 THE SOFTWARE.
 */
 
-import java.lang.reflect.Field;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 /**
  * This class represents a Magic set.
@@ -50,9 +49,7 @@ public class CardSet {
 	 * Constructor for an empty CardSet.  All values will be unset upon instantiation.
 	 */
 	public CardSet() {
-		if( memberTypeHash == null ) {
-			createMemberTypeHash();
-		}
+
 	}
 
 	/**
@@ -65,49 +62,28 @@ public class CardSet {
 		@SuppressWarnings("unchecked")
 		Set<String> set = json.keySet();
 		for( String s : set ) {
-			CardField cardField = memberTypeHash.get(s);
-			if( cardField != null) {
-				//System.out.println(s+" is a "+cardField.type);
-				try {
-					if( cardField.type.matches("int") ) {
-						int val = json.getInt(s);
-						cardField.f.set(this, val);
-						//System.out.println("Set "+cardField.name+" to "+cardField.f.getInt(this));
-					}
-					else if( cardField.type.matches("java.lang.String") ) {
-						Object o = json.get(s);
-						if( o != JSONObject.NULL ) cardField.f.set(this, (String) o);
-						else continue;
-						//System.out.println("Set "+cardField.name+" to "+cardField.f.get(this));
-					}
-					else if( cardField.type.matches("java.util.Date") ) {
-						SimpleDateFormat sdf = new SimpleDateFormat(Dates.dateFormatInput);
-						Date date = sdf.parse(json.getString(s));
-
-						cardField.f.set(this, date);
-					}
-					else if( cardField.type.matches("java.util.List") ) {
-						JSONArray jsonArray = json.getJSONArray(s);
-						if( s.matches("cardIds") ) {
-							cardIds = new ArrayList<Integer>();
-							for( int i = 0; i < jsonArray.length(); i++ ) {
-								cardIds.add(jsonArray.getInt(i));
-							}
-						}
-
-					}
-				} catch (IllegalArgumentException e) {
-					e.printStackTrace();
-				} catch (IllegalAccessException e) {
-					e.printStackTrace();
-				} catch (ParseException e) {
-					e.printStackTrace();
-				}
-			}
+			FieldBinder binder = memberTypeHash.get(s);
+			if( binder != null ) binder.bind(this, json, s);
 			//else System.out.println(s+" wasn't found.");
 		}
 	}
 
+	/**
+	 * Constructor for a CardSet read directly from a tokener positioned at its JSON
+	 * object, without building a {@link JSONObject} first.
+	 * 
+	 * @param x JSONTokener for a CardSet as described by the mtgdb.info API.
+	 */
+	public CardSet(JSONTokener x) {
+		this();
+		TokenReader.beginObject(x);
+		for( String s = TokenReader.nextKey(x); s != null; s = TokenReader.nextKey(x) ) {
+			FieldBinder binder = memberTypeHash.get(s);
+			if( binder != null ) binder.bind(this, x);
+			else TokenReader.skipValue(x);
+		}
+	}
+
 	private String id;
 	private String name;
 	private String block;
@@ -121,30 +97,16 @@ public class CardSet {
 	private int basicLand;
 	private int total;
 
-	private Date releasedAt;
+	/* Days since 1970-01-01, see Dates. */
+	@FieldBinder.EpochDay
+	private int releasedAt = Dates.EPOCH_DAY_NOT_SET;
 	private List<Integer> cardIds;
 
-	private static HashMap<String, CardField> memberTypeHash = null;
-
-	/* Used in reflection to access data members by name when processing JSON. */
-	private class CardField {
-		Field f;
-		//String name;
-		String type;
-	}
-	
-	/* Populates the static HashMap of field values. */
-	private void createMemberTypeHash() {
-		memberTypeHash = new HashMap<String, CardField>();
-		Field[] fields = getClass().getDeclaredFields();
-		for( Field f : fields ) {
-			CardField cf = new CardField();
-			cf.type = f.getType().getCanonicalName();
-			cf.f = f;
-			//cf.name = f.getName();
-			memberTypeHash.put(f.getName(), cf);
-		}
-	}
+	/* Field binders by JSON key, built once when the class is initialized and
+	 * read-only afterwards so CardSets can be built from any thread.  See Card.
+	 */
+	private static final Map<String, FieldBinder> memberTypeHash =
+			Collections.unmodifiableMap(FieldBinder.forClass(MethodHandles.lookup(), false));
 
 	public String getId() {
 		return id;
@@ -227,12 +189,33 @@ public class CardSet {
 		this.basicLand = basicLand;
 	}
 
+	/**
+	 * @return A new {@link Date} for the release day, or null if it is not set.
+	 */
 	public Date getReleasedAt() {
-		return releasedAt;
+		return Dates.toDate(releasedAt);
 	}
 
 	public void setReleasedAt(Date releasedAt) {
-		this.releasedAt = releasedAt;
+		this.releasedAt = Dates.fromDate(releasedAt);
+	}
+
+	/**
+	 * @return The release date as a {@link LocalDate}, or null if it is not set.
+	 */
+	public LocalDate getReleasedAtDate() {
+		return Dates.toLocalDate(releasedAt);
+	}
+
+	/**
+	 * @return The release date in days since 1970-01-01, or {@link Dates#EPOCH_DAY_NOT_SET}.
+	 */
+	public int getReleasedAtEpochDay() {
+		return releasedAt;
+	}
+
+	public void setReleasedAtEpochDay(int epochDay) {
+		this.releasedAt = epochDay;
 	}
 
 	public List<Integer> getCardIds() {
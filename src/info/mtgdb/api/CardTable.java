@@ -0,0 +1,464 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact, read-only store for a large number of cards, such as the whole
+ * database, laid out by column rather than by card.
+ * <p>
+ * Each int field is a primitive array with one element per card.  Strings are
+ * dictionary-encoded: every distinct value is kept once, and each card holds only
+ * its index, so the artist, rarity, type and set of tens of thousands of cards
+ * cost four bytes each rather than a String reference and often a String of their
+ * own.  Lists of colors, rulings and formats are shared the same way between the
+ * cards that have equal ones, such as reprints.  Scanning one field of every card
+ * reads one array from start to end.
+ * <p>
+ * {@link #get(int)} hands out a {@link Card} that reads its row of the table when
+ * its getters are called; its setters throw {@link UnsupportedOperationException}.
+ * Because the view is a Card, it still carries Card's own (unused) fields, so each
+ * one costs about as much as a Card while it lives.  Views are made on demand and
+ * are best dropped once read; a scan over many rows that cares about allocation
+ * should use the row accessors, such as {@link #getConvertedManaCost(int)},
+ * which make nothing.
+ * The lists they return are unmodifiable and, like the {@link Ruling} and
+ * {@link Format} objects in them, shared with other cards.
+ * <p>
+ * A table is immutable once built and safe to share between threads.
+ */
+public class CardTable {
+
+	private final int size;
+
+	private final int[] ids;
+	private final int[] relatedCardIds;
+	private final int[] setNumbers;
+	private final int[] powers;
+	private final int[] toughnesses;
+	private final int[] loyalties;
+	private final int[] convertedManaCosts;
+	private final int[] releasedAts;
+	private final BitSet tokens;
+	private final byte[] colorMasks;
+	private final long[] parsedManaCosts;
+
+	/* Every distinct string of every string field, indexed by the columns below; -1 is null. */
+	private final String[] strings;
+	private final int[] names;
+	private final int[] descriptions;
+	private final int[] flavors;
+	private final int[] manaCosts;
+	private final int[] cardSetNames;
+	private final int[] types;
+	private final int[] subTypes;
+	private final int[] rarities;
+	private final int[] artists;
+	private final int[] cardSetIds;
+	private final int[] searchNames;
+
+	/* The distinct lists, indexed by the columns below; -1 is null. */
+	private final List<String>[] colorLists;
+	private final List<Ruling>[] rulingLists;
+	private final List<Format>[] formatLists;
+	private final int[] colors;
+	private final int[] rulings;
+	private final int[] formats;
+
+	/**
+	 * @param cards The cards to store.  They are copied, so later changes to them or
+	 * to the collection are not seen, apart from changes to their rulings and formats.
+	 */
+	public CardTable(Collection<Card> cards) {
+		size = cards.size();
+		ids = new int[size];
+		relatedCardIds = new int[size];
+		setNumbers = new int[size];
+		powers = new int[size];
+		toughnesses = new int[size];
+		loyalties = new int[size];
+		convertedManaCosts = new int[size];
+		releasedAts = new int[size];
+		tokens = new BitSet(size);
+		colorMasks = new byte[size];
+		parsedManaCosts = new long[size];
+
+		names = new int[size];
+		descriptions = new int[size];
+		flavors = new int[size];
+		manaCosts = new int[size];
+		cardSetNames = new int[size];
+		types = new int[size];
+		subTypes = new int[size];
+		rarities = new int[size];
+		artists = new int[size];
+		cardSetIds = new int[size];
+		searchNames = new int[size];
+
+		colors = new int[size];
+		rulings = new int[size];
+		formats = new int[size];
+
+		Dictionary<String> stringDictionary = new Dictionary<String>();
+		Dictionary<List<String>> colorDictionary = new Dictionary<List<String>>();
+		Dictionary<List<Ruling>> rulingDictionary = new Dictionary<List<Ruling>>();
+		Dictionary<List<Format>> formatDictionary = new Dictionary<List<Format>>();
+
+		int row = 0;
+		for( Card c : cards ) {
+			ids[row] = c.getId();
+			relatedCardIds[row] = c.getRelatedCardId();
+			setNumbers[row] = c.getSetNumber();
+			powers[row] = c.getPower();
+			toughnesses[row] = c.getToughness();
+			loyalties[row] = c.getLoyalty();
+			convertedManaCosts[row] = c.getConvertedManaCost();
+			releasedAts[row] = c.getReleasedAtEpochDay();
+			if( c.isToken() ) tokens.set(row);
+			colorMasks[row] = (byte) c.getColorMask();
+			parsedManaCosts[row] = c.getParsedManaCost();
+
+			names[row] = stringDictionary.code(c.getName());
+			descriptions[row] = stringDictionary.code(c.getDescription());
+			flavors[row] = stringDictionary.code(c.getFlavor());
+			manaCosts[row] = stringDictionary.code(c.getManaCost());
+			cardSetNames[row] = stringDictionary.code(c.getCardSetName());
+			types[row] = stringDictionary.code(c.getType());
+			subTypes[row] = stringDictionary.code(c.getSubType());
+			rarities[row] = stringDictionary.code(c.getRarity());
+			artists[row] = stringDictionary.code(c.getArtist());
+			cardSetIds[row] = stringDictionary.code(c.getCardSetId());
+			searchNames[row] = stringDictionary.code(c.getSearchName());
+
+			List<String> colorList = c.getColors() == null ? null : Collections.unmodifiableList(new ArrayList<String>(c.getColors()));
+			colors[row] = colorDictionary.code(colorList);
+			List<Ruling> rulingList = c.getRulings() == null ? null : Collections.unmodifiableList(new ArrayList<Ruling>(c.getRulings()));
+			rulings[row] = rulingDictionary.code(rulingKey(rulingList), rulingList);
+			List<Format> formatList = c.getFormats() == null ? null : Collections.unmodifiableList(new ArrayList<Format>(c.getFormats()));
+			formats[row] = formatDictionary.code(formatKey(formatList), formatList);
+			row++;
+		}
+
+		strings = stringDictionary.values.toArray(new String[stringDictionary.values.size()]);
+		colorLists = colorDictionary.toArray();
+		rulingLists = rulingDictionary.toArray();
+		formatLists = formatDictionary.toArray();
+	}
+
+	/* Assigns each distinct value, by key, the next code. */
+	private static final class Dictionary<T> {
+		final HashMap<Object, Integer> codes = new HashMap<Object, Integer>();
+		final ArrayList<T> values = new ArrayList<T>();
+
+		int code(T value) {
+			return code(value, value);
+		}
+
+		int code(Object key, T value) {
+			if( value == null ) return -1;
+			Integer code = codes.get(key);
+			if( code == null ) {
+				code = values.size();
+				codes.put(key, code);
+				values.add(value);
+			}
+			return code;
+		}
+
+		@SuppressWarnings("unchecked")
+		<E> List<E>[] toArray() {
+			return (List<E>[]) values.toArray(new List<?>[values.size()]);
+		}
+	}
+
+	/* Rulings and Formats don't implement equals(), so lists of them are compared by their text. */
+	private static String rulingKey(List<Ruling> list) {
+		if( list == null ) return null;
+		StringBuilder sb = new StringBuilder();
+		for( Ruling r : list ) {
+			sb.append(r == null ? -1 : r.getReleasedAtEpochDay()).append('\u0000');
+			sb.append(r == null ? null : r.getRule()).append('\u0001');
+		}
+		return sb.toString();
+	}
+
+	private static String formatKey(List<Format> list) {
+		if( list == null ) return null;
+		StringBuilder sb = new StringBuilder();
+		for( Format f : list ) {
+			sb.append(f == null ? null : f.getName()).append('\u0000');
+			sb.append(f == null ? null : f.getLegality()).append('\u0001');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return The number of cards in the table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of distinct strings the table holds.
+	 */
+	public int stringCount() {
+		return strings.length;
+	}
+
+	/**
+	 * @param row A card's position in the collection the table was built from.
+	 * @return A read-only view of the card.
+	 */
+	public Card get(int row) {
+		if( row < 0 || row >= size ) throw new IndexOutOfBoundsException("Row "+row+" of "+size);
+		return new Row(row);
+	}
+
+	/**
+	 * @return Every card in the table, as views made when each element is read.
+	 */
+	public List<Card> asList() {
+		return new Rows();
+	}
+
+	/**
+	 * @return The multiverse id of the card in a row.
+	 */
+	public int getId(int row) {
+		return ids[row];
+	}
+
+	/**
+	 * @return The converted mana cost of the card in a row.
+	 */
+	public int getConvertedManaCost(int row) {
+		return convertedManaCosts[row];
+	}
+
+	/**
+	 * @return The power of the card in a row.
+	 */
+	public int getPower(int row) {
+		return powers[row];
+	}
+
+	/**
+	 * @return The toughness of the card in a row.
+	 */
+	public int getToughness(int row) {
+		return toughnesses[row];
+	}
+
+	/**
+	 * @return The loyalty of the card in a row.
+	 */
+	public int getLoyalty(int row) {
+		return loyalties[row];
+	}
+
+	/**
+	 * @return The {@link Color} mask of the card in a row.
+	 */
+	public int getColorMask(int row) {
+		return colorMasks[row];
+	}
+
+	/**
+	 * @return The {@link ManaCost} of the card in a row.
+	 */
+	public long getParsedManaCost(int row) {
+		return parsedManaCosts[row];
+	}
+
+	/**
+	 * @return The release date of the card in a row, in days since 1970-01-01.
+	 */
+	public int getReleasedAtEpochDay(int row) {
+		return releasedAts[row];
+	}
+
+	private String string(int code) {
+		return code < 0 ? null : strings[code];
+	}
+
+	private final class Rows extends AbstractList<Card> implements RandomAccess {
+		@Override
+		public Card get(int index) {
+			return CardTable.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/* A card read from one row of the table. */
+	private final class Row extends CardView {
+
+		private final int row;
+
+		Row(int row) {
+			this.row = row;
+		}
+
+		@Override
+		public int getId() {
+			return ids[row];
+		}
+
+		@Override
+		public int getRelatedCardId() {
+			return relatedCardIds[row];
+		}
+
+		@Override
+		public int getSetNumber() {
+			return setNumbers[row];
+		}
+
+		@Override
+		public String getName() {
+			return string(names[row]);
+		}
+
+		@Override
+		public String getDescription() {
+			return string(descriptions[row]);
+		}
+
+		@Override
+		public String getFlavor() {
+			return string(flavors[row]);
+		}
+
+		@Override
+		public List<String> getColors() {
+			int code = colors[row];
+			return code < 0 ? null : colorLists[code];
+		}
+
+		@Override
+		public int getColorMask() {
+			return colorMasks[row];
+		}
+
+		@Override
+		public String getManaCost() {
+			return string(manaCosts[row]);
+		}
+
+		@Override
+		public long getParsedManaCost() {
+			return parsedManaCosts[row];
+		}
+
+		@Override
+		public int getConvertedManaCost() {
+			return convertedManaCosts[row];
+		}
+
+		@Override
+		public String getCardSetName() {
+			return string(cardSetNames[row]);
+		}
+
+		@Override
+		public String getType() {
+			return string(types[row]);
+		}
+
+		@Override
+		public String getSubType() {
+			return string(subTypes[row]);
+		}
+
+		@Override
+		public int getPower() {
+			return powers[row];
+		}
+
+		@Override
+		public int getToughness() {
+			return toughnesses[row];
+		}
+
+		@Override
+		public int getLoyalty() {
+			return loyalties[row];
+		}
+
+		@Override
+		public String getRarity() {
+			return string(rarities[row]);
+		}
+
+		@Override
+		public String getArtist() {
+			return string(artists[row]);
+		}
+
+		@Override
+		public String getCardSetId() {
+			return string(cardSetIds[row]);
+		}
+
+		@Override
+		public List<Ruling> getRulings() {
+			int code = rulings[row];
+			return code < 0 ? null : rulingLists[code];
+		}
+
+		@Override
+		public List<Format> getFormats() {
+			int code = formats[row];
+			return code < 0 ? null : formatLists[code];
+		}
+
+		@Override
+		public int getReleasedAtEpochDay() {
+			return releasedAts[row];
+		}
+
+		@Override
+		public String getSearchName() {
+			return string(searchNames[row]);
+		}
+
+		@Override
+		public boolean isToken() {
+			return tokens.get(row);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.List;
+
+/*
+ * A read-only Card whose getters are answered by some other storage, such as a
+ * CardTable row.  Subclasses override every getter; the fields inherited from
+ * Card keep their defaults and are never read.  The setters throw.
+ * 
+ * Extending Card is what lets a view go anywhere a Card does, such as the lists
+ * the rest of the API returns, but it means every view still allocates all of
+ * Card's fields.  The saving is in the storage behind the views, not in the views.
+ */
+abstract class CardView extends Card {
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("This Card is a read-only view.");
+	}
+
+	@Override
+	public void setId(int id) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setRelatedCardId(int relatedCardId) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setSetNumber(int setNumber) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setName(String name) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setDescription(String description) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setFlavor(String flavor) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setColors(List<String> colors) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setManaCost(String manaCost) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setConvertedManaCost(int convertedManaCost) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCardSetName(String cardSetName) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setType(String type) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setSubType(String subType) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setPower(int power) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setToughness(int toughness) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setLoyalty(int loyalty) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setRarity(String rarity) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setArtist(String artist) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setCardSetId(String cardSetId) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setRulings(List<Ruling> rulings) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setFormats(List<Format> formats) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setReleasedAt(String releasedAt) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setReleasedAtEpochDay(int epochDay) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setSearchName(String searchName) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setToken(boolean isToken) {
+		throw readOnly();
+	}
+
+	@Override
+	public abstract int getId();
+
+	@Override
+	public abstract int getRelatedCardId();
+
+	@Override
+	public abstract int getSetNumber();
+
+	@Override
+	public abstract String getName();
+
+	@Override
+	public abstract String getDescription();
+
+	@Override
+	public abstract String getFlavor();
+
+	@Override
+	public abstract List<String> getColors();
+
+	@Override
+	public abstract int getColorMask();
+
+	@Override
+	public abstract String getManaCost();
+
+	@Override
+	public abstract long getParsedManaCost();
+
+	@Override
+	public abstract int getConvertedManaCost();
+
+	@Override
+	public abstract String getCardSetName();
+
+	@Override
+	public abstract String getType();
+
+	@Override
+	public abstract String getSubType();
+
+	@Override
+	public abstract int getPower();
+
+	@Override
+	public abstract int getToughness();
+
+	@Override
+	public abstract int getLoyalty();
+
+	@Override
+	public abstract String getRarity();
+
+	@Override
+	public abstract String getArtist();
+
+	@Override
+	public abstract String getCardSetId();
+
+	@Override
+	public abstract List<Ruling> getRulings();
+
+	@Override
+	public abstract List<Format> getFormats();
+
+	@Override
+	public abstract int getReleasedAtEpochDay();
+
+	@Override
+	public abstract String getSearchName();
+
+	@Override
+	public abstract boolean isToken();
+}
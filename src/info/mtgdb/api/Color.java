@@ -0,0 +1,143 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * The five colors of Magic.  Besides the list of color names from the web service
+ * API, a {@link Card} keeps its colors as a mask with one bit per color, see
+ * {@link Card#getColorMask()}, so that color tests are bit operations:
+ * 
+ * <pre>
+ * int identity = Color.mask(Color.WHITE, Color.BLUE);
+ * boolean fits = (card.getColorMask() &amp; ~identity) == 0;
+ * </pre>
+ */
+public enum Color {
+	WHITE("white", 'W'),
+	BLUE("blue", 'U'),
+	BLACK("black", 'B'),
+	RED("red", 'R'),
+	GREEN("green", 'G');
+
+	/**
+	 * A mask with every color's bit set.
+	 */
+	public static final int ALL = (1 << 5) - 1;
+
+	private static final Color[] VALUES = values();
+
+	private final String name;
+	private final char symbol;
+
+	private Color(String name, char symbol) {
+		this.name = name;
+		this.symbol = symbol;
+	}
+
+	/**
+	 * @return The color's name as the web service API spells it, such as "blue".
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The color's mana symbol, such as 'U' for blue.
+	 */
+	public char getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @return The color's bit in a color mask.
+	 */
+	public int getBit() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @param name A color name in any case, such as "Blue".
+	 * @return The color, or null if the name isn't one.
+	 */
+	public static Color fromName(String name) {
+		if( name == null ) return null;
+		String lower = name.trim().toLowerCase(Locale.ROOT);
+		for( Color c : VALUES ) {
+			if( c.name.equals(lower) ) return c;
+		}
+		return null;
+	}
+
+	/**
+	 * @param symbol A mana symbol in any case, such as 'u'.
+	 * @return The color, or null if the symbol isn't one.
+	 */
+	public static Color fromSymbol(char symbol) {
+		char upper = Character.toUpperCase(symbol);
+		for( Color c : VALUES ) {
+			if( c.symbol == upper ) return c;
+		}
+		return null;
+	}
+
+	/**
+	 * @param names Color names such as a Card's {@link Card#getColors()}, or null.
+	 * @return The mask of the colors named.  Names that aren't colors are ignored.
+	 */
+	public static int mask(Collection<String> names) {
+		int mask = 0;
+		if( names == null ) return mask;
+		for( String name : names ) {
+			Color c = fromName(name);
+			if( c != null ) mask |= c.getBit();
+		}
+		return mask;
+	}
+
+	/**
+	 * @return The mask of the colors given.
+	 */
+	public static int mask(Color... colors) {
+		int mask = 0;
+		for( Color c : colors ) mask |= c.getBit();
+		return mask;
+	}
+
+	/**
+	 * @param mask A color mask.
+	 * @return The colors in the mask.
+	 */
+	public static EnumSet<Color> fromMask(int mask) {
+		EnumSet<Color> colors = EnumSet.noneOf(Color.class);
+		for( Color c : VALUES ) {
+			if( (mask & c.getBit()) != 0 ) colors.add(c);
+		}
+		return colors;
+	}
+}
@@ -1,6 +1,8 @@
 package info.mtgdb.api;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class ComplexQuery {
 
@@ -24,6 +26,18 @@ public class ComplexQuery {
 		this.limit = l;
 	}
 	
+	public List<QueryElement> getQueryElements() {
+		return Collections.unmodifiableList(elements);
+	}
+	
+	public int getStart() {
+		return start;
+	}
+	
+	public int getLimit() {
+		return limit;
+	}
+	
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		
@@ -24,6 +24,19 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
 THE SOFTWARE.
 */
 
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Date handling shared by {@link Card}, {@link CardSet} and {@link Ruling}.  Dates
+ * are kept as epoch days (days since 1970-01-01) in a plain int, and parsed and
+ * printed with the immutable, thread-safe formatters below, so no per-object
+ * formatter or {@link Date} is needed.
+ */
 public class Dates {
 
 	/* Formatters for dates.  If the format of the date from the web service API changes,
@@ -33,10 +46,95 @@ public class Dates {
 	 * They are no longer used in the project.  But I'll leave them here for historical 
 	 * reference and as a mark of shame to Java for having such an innocuous class rely
 	 * on non-thread safe data structures.  Boooo!
+	 * 
+	 * UPDATE 2:  java.time's DateTimeFormatter is immutable and thread safe, so the
+	 * formatters are back as shared constants below.
 	 */
 	//public final static SimpleDateFormat dateFormatterInput  = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
 	//public final static SimpleDateFormat dateFormatterOutput = new SimpleDateFormat("yyyy-MM-dd");
 	
 	public final static String dateFormatInput  = "yyyy-MM-dd";
 	public final static String dateFormatOutput = "yyyy-MM-dd";
+
+	public final static DateTimeFormatter dateFormatterInput  = DateTimeFormatter.ofPattern(dateFormatInput);
+	public final static DateTimeFormatter dateFormatterOutput = DateTimeFormatter.ofPattern(dateFormatOutput);
+
+	/**
+	 * Epoch day used for dates that are not set.
+	 */
+	public final static int EPOCH_DAY_NOT_SET = Integer.MIN_VALUE;
+
+	/**
+	 * Parse a date from the web service API.  Anything after the date itself, such as
+	 * a time of day, is ignored.
+	 * 
+	 * @param s The date text, may be null.
+	 * @return The epoch day, or {@link #EPOCH_DAY_NOT_SET} if s is null or not a date.
+	 */
+	public static int parseEpochDay(String s) {
+		if( s == null ) return EPOCH_DAY_NOT_SET;
+
+		/* Fast path for the plain yyyy-MM-dd the API sends, without allocating. */
+		if( s.length() >= 10 && s.charAt(4) == '-' && s.charAt(7) == '-' ) {
+			int year = digits(s, 0, 4);
+			int month = digits(s, 5, 7);
+			int day = digits(s, 8, 10);
+			if( year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31 ) {
+				try {
+					return (int) LocalDate.of(year, month, day).toEpochDay();
+				} catch (DateTimeException e) {
+					return EPOCH_DAY_NOT_SET;
+				}
+			}
+		}
+
+		try {
+			return (int) LocalDate.from(dateFormatterInput.parse(s, new ParsePosition(0))).toEpochDay();
+		} catch (DateTimeException e) {
+			return EPOCH_DAY_NOT_SET;
+		}
+	}
+
+	/**
+	 * @return The epoch day printed with {@link #dateFormatterOutput}, or null if it is not set.
+	 */
+	public static String format(int epochDay) {
+		if( epochDay == EPOCH_DAY_NOT_SET ) return null;
+		return dateFormatterOutput.format(LocalDate.ofEpochDay(epochDay));
+	}
+
+	/**
+	 * @return The epoch day as a {@link LocalDate}, or null if it is not set.
+	 */
+	public static LocalDate toLocalDate(int epochDay) {
+		if( epochDay == EPOCH_DAY_NOT_SET ) return null;
+		return LocalDate.ofEpochDay(epochDay);
+	}
+
+	/**
+	 * @return Midnight of the epoch day in the default time zone, or null if it is not set.
+	 */
+	public static Date toDate(int epochDay) {
+		if( epochDay == EPOCH_DAY_NOT_SET ) return null;
+		return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	/**
+	 * @return The day of d in the default time zone, or {@link #EPOCH_DAY_NOT_SET} if d is null.
+	 */
+	public static int fromDate(Date d) {
+		if( d == null ) return EPOCH_DAY_NOT_SET;
+		return (int) d.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+	}
+
+	/* The non-negative number in s[start, end), or -1 if it isn't all digits. */
+	private static int digits(String s, int start, int end) {
+		int n = 0;
+		for( int i = start; i < end; i++ ) {
+			char c = s.charAt(i);
+			if( c < '0' || c > '9' ) return -1;
+			n = n * 10 + (c - '0');
+		}
+		return n;
+	}
 }
@@ -25,11 +25,14 @@ THE SOFTWARE.
  */
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.json.*;
@@ -46,6 +49,24 @@ public class Db {
 
 	public static String API_URL = "https://api.mtgdb.info";
 
+	private static volatile Transport transport = new HttpTransport();
+
+	/* Optional caches for getCard(), getCardWithinSet() and getSet(), keyed by request URL. */
+	private static volatile Cache<String, Card> cardCache = null;
+	private static volatile Cache<String, CardSet> setCache = null;
+
+	/* How getCards(ArrayList) and getSets(ArrayList) split up long id lists. */
+	private static volatile int maxIdsPerRequest = 100;
+	private static volatile int maxParallelRequests = 4;
+
+	/* How many cards each request of a parallel set download asks for. */
+	private static volatile int pageSize = 100;
+
+	/* Concurrent requests for the same URL share one fetch and parse. */
+	private static final SingleFlight<String, Card> cardFlights = new SingleFlight<String, Card>();
+	private static final SingleFlight<String, CardSet> setFlights = new SingleFlight<String, CardSet>();
+	private static final SingleFlight<String, ArrayList<Card>> cardListFlights = new SingleFlight<String, ArrayList<Card>>();
+
 	/* Make this class un-instantiatable. */
 	private Db() {
 
@@ -61,21 +82,146 @@ public class Db {
 		API_URL = url;
 	}
 
+	/**
+	 * Replace the {@link Transport} used to fetch every response.  The default is an
+	 * {@link HttpTransport} with pooled keep-alive connections, so this is mainly for
+	 * tuning its limits and timeouts or for serving responses from somewhere else.
+	 * 
+	 * @param t The new transport.  Must not be null.
+	 */
+	public static void setTransport(Transport t) {
+		if( t == null ) throw new IllegalArgumentException("Transport can not be null.");
+		transport = t;
+	}
+
+	/**
+	 * @return The {@link Transport} currently used to fetch responses.
+	 */
+	public static Transport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Cache the cards returned by {@link #getCard(int)} and
+	 * {@link #getCardWithinSet(String, int)}, so repeated lookups of the same card
+	 * don't go back to the network.  Entries are keyed by the request URL, which
+	 * holds the multiverse id or the set id and number.  There is no cache by
+	 * default.  Cached Cards are shared between callers and should not be modified.
+	 * 
+	 * @param cache The cache to use, or null for none.
+	 */
+	public static void setCardCache(Cache<String, Card> cache) {
+		cardCache = cache;
+	}
+
+	/**
+	 * @return The cache used for cards, or null.
+	 */
+	public static Cache<String, Card> getCardCache() {
+		return cardCache;
+	}
+
+	/**
+	 * Same as {@link #setCardCache(Cache)} but for {@link #getSet(String)}.
+	 * 
+	 * @param cache The cache to use, or null for none.
+	 */
+	public static void setSetCache(Cache<String, CardSet> cache) {
+		setCache = cache;
+	}
+
+	/**
+	 * @return The cache used for sets, or null.
+	 */
+	public static Cache<String, CardSet> getSetCache() {
+		return setCache;
+	}
+
+	/**
+	 * Set how many ids {@link #getCards(ArrayList)} and {@link #getSets(ArrayList)} put
+	 * in one request.  Longer lists are split into several requests, which keeps the
+	 * URLs short enough for servers and proxies to accept.  The default is 100.
+	 * 
+	 * @param n The most ids per request.
+	 */
+	public static void setMaxIdsPerRequest(int n) {
+		if( n <= 0 ) throw new IllegalArgumentException("The number of ids per request must be positive.");
+		maxIdsPerRequest = n;
+	}
+
+	/**
+	 * @return The most ids put in one request.
+	 */
+	public static int getMaxIdsPerRequest() {
+		return maxIdsPerRequest;
+	}
+
+	/**
+	 * Set how many of the requests a single call is split into may run at once.  The
+	 * calling thread runs requests itself and the rest run on
+	 * {@link AsyncDb#getExecutor()}.  The default is 4.
+	 * 
+	 * @param n The most requests to run at once for one call.
+	 */
+	public static void setMaxParallelRequests(int n) {
+		if( n <= 0 ) throw new IllegalArgumentException("The number of parallel requests must be positive.");
+		maxParallelRequests = n;
+	}
+
+	/**
+	 * @return The most requests run at once for one call.
+	 */
+	public static int getMaxParallelRequests() {
+		return maxParallelRequests;
+	}
+
+	/**
+	 * Set how many cards each request of {@link #getSetCardsInParallel(String, int)}
+	 * and {@link #getCardsInParallel(int)} asks for.  The default is 100.
+	 * 
+	 * @param n The most cards per page.
+	 */
+	public static void setPageSize(int n) {
+		if( n <= 0 ) throw new IllegalArgumentException("The page size must be positive.");
+		pageSize = n;
+	}
+
+	/**
+	 * @return The most cards asked for by one page of a parallel download.
+	 */
+	public static int getPageSize() {
+		return pageSize;
+	}
+
+	/* Looks a card up in the cache, if there is one, before fetching it. */
+	private static Card getCachedCard(String url) {
+		Cache<String, Card> cache = cardCache;
+		if( cache == null ) return getCardFromUrl(url);
+		Card c = cache.get(url);
+		if( c == null ) {
+			c = getCardFromUrl(url);
+			cache.put(url, c);
+		}
+		return c;
+	}
+
 	/**
 	 * This method will allow the user to supply an arbitrary URL string from which
 	 * he or she expects to receive a card.  If new API calls are added to mtgdb.info
 	 * in the future, this method would be the way to get data from those new calls
 	 * while waiting for a proper update to this Java API.
+	 * <p>
+	 * Threads that ask for the same URL while a request for it is running wait for
+	 * that request rather than making their own, and all get the same Card.  That
+	 * only suits URLs that always return the same card, so {@link #getRandom(String)}
+	 * doesn't use it.
 	 * 
 	 * @param url String
 	 * @return
 	 */
 	public static Card getCardFromUrl(String url) {
-		Card card = null;
-		JSONObject root = getObject(url);
-		card = new Card(root);
-
-		return card;
+		/* Bind straight from the response without building a JSONObject first. */
+		return cardFlights.execute(url, () -> fetch(url, Card::new));
 	}
 	
 
@@ -85,35 +231,73 @@ public class Db {
 	 * @return
 	 */
 	public static CardSet getSetFromUrl(String url) {
-		CardSet cardSet = null;
-
-		JSONObject root = getObject(url);
-		cardSet = new CardSet(root);
-
-		return cardSet;
+		return setFlights.execute(url, () -> fetch(url, CardSet::new));
 	}
 
 	/**
 	 * Same as {@link getCardFromUrl} but for ArrayList<Card> objects instead of Cards.
+	 * Threads that ask for the same URL at once share the Cards, but each gets its own
+	 * ArrayList.
 	 * @param url
 	 * @return
 	 */
 	public static ArrayList<Card> getCardsFromUrl(String url) {
+		ArrayList<Card> shared = cardListFlights.execute(url, () -> readCards(url));
+		return shared == null ? null : new ArrayList<Card>(shared);
+	}
+
+	private static ArrayList<Card> readCards(String url) {
 		ArrayList<Card> cards = new ArrayList<Card>();
 		
-		JSONArray ja = getArray(url);
+		CardIterator it = iterateCardsFromUrl(url);
+		if( it == null ) return null;
 
-		/* Process the JSON to create the list of cards. */
-		for( int i = 0; i < ja.length(); i++ ) {
-			//if( i == 0 ) System.out.println(ja.getJSONObject(0).toString());
-			Card c = new Card(ja.getJSONObject(i));
-			//if( i == 0 ) System.out.println(c.getName()+" "+c.getArtist()+" "+c.getCardSetId()+" "+c.getId()+" "+c.getRarity());
-			if( c != null ) cards.add(c);
+		/* Cards are parsed one at a time, so the JSON is never held as a whole tree. */
+		try {
+			while( it.hasNext() ) {
+				Card c = it.next();
+				if( c != null ) cards.add(c);
+			}
+		} catch (JSONException e) {
+			System.err.println("Problem with the JSON?  That isn't good.");
+			e.printStackTrace();
+			return null;
 		}
 
 		return cards;
 	}
 
+	/**
+	 * Same as {@link getCardsFromUrl} but the cards are parsed lazily as the caller
+	 * walks the {@link CardIterator}, so memory use does not grow with the size of the
+	 * response.  The caller should close the iterator if it stops before the end.
+	 * 
+	 * @param url
+	 * @return A {@link CardIterator}, or null if the request failed.
+	 */
+	public static CardIterator iterateCardsFromUrl(String url) {
+		InputStream in = null;
+		try {
+			in = transport.open(url);
+			return new CardIterator(in);
+		} catch (JSONException e) {
+			System.err.println("Problem with the JSON?  That isn't good.");
+			e.printStackTrace();
+			close(in);
+			return null;
+		} catch (MalformedURLException e) {
+			System.err.println("Check your URL for correctness.");
+			System.err.println("'"+url+"' is malformed for some reason.");
+			e.printStackTrace();
+			return null;
+		} catch (IOException e) {
+			System.err.println("Problem opening an input stream from the URL: "+url);
+			e.printStackTrace();
+			close(in);
+			return null;
+		}
+	}
+
 	/** 
 	 * Get a random card from a particular set.
 	 * 
@@ -122,7 +306,8 @@ public class Db {
 	 */
 	public static Card getRandom(String setId) {
 		String url = setId == null ? API_URL+"/cards/random" : API_URL+"/sets/"+setId+"/cards/random";
-		return getCardFromUrl(url);
+		/* Each call must get its own card, so this doesn't share a request with other callers. */
+		return fetch(url, Card::new);
 	}
 
 	/**
@@ -142,7 +327,7 @@ public class Db {
 	 */
 	public static Card getCard(int id) {
 		String url = API_URL+"/cards/"+id;
-		return getCardFromUrl(url);
+		return getCachedCard(url);
 	}
 	
 	
@@ -161,7 +346,7 @@ public class Db {
 	 */
 	public static Card getCardWithinSet(String set, int id) {
 		String url = API_URL+"/sets/"+set+"/cards/"+id;
-		return getCardFromUrl(url);
+		return getCachedCard(url);
 	}
 
 	/**
@@ -172,32 +357,81 @@ public class Db {
 	public static CardSet getSet(String setId)
 	{
 		String url = API_URL+"/sets/"+setId;
-		return getSetFromUrl(url);
+		Cache<String, CardSet> cache = setCache;
+		if( cache == null ) return getSetFromUrl(url);
+		CardSet cs = cache.get(url);
+		if( cs == null ) {
+			cs = getSetFromUrl(url);
+			cache.put(url, cs);
+		}
+		return cs;
 	}
 
 	/**
-	 * Retrieve set information based upon their set ids.
+	 * Retrieve set information based upon their set ids.  Long lists are split into
+	 * several requests that run in parallel, see {@link #setMaxIdsPerRequest(int)}.
 	 * 
 	 * @param ids An {@link ArrayList} of 3-character set ids.
-	 * @return An {@link ArrayList} of {@link CardSet} objects.
+	 * @return An {@link ArrayList} of {@link CardSet} objects, in the order of the ids,
+	 * or null if a request failed.  A repeated id is fetched once but appears at each
+	 * of its positions.  Ids that aren't sets are left out, and an empty list returns
+	 * every set.
 	 */
 	public static ArrayList<CardSet> getSets(ArrayList<String> ids) {
-		StringBuilder sb = new StringBuilder();
-		ArrayList<CardSet> cardSetArray = new ArrayList<CardSet>();
-		for( String s : ids ) {
-			sb.append(s+","); // Trailing commas don't seem to hurt API call.
+		/* An empty list has always asked for every set. */
+		if( ids.isEmpty() ) return getAllSets();
 
+		LinkedHashSet<String> distinct = new LinkedHashSet<String>();
+		for( String s : ids ) {
+			if( s != null ) distinct.add(s);
+		}
+		final List<List<String>> chunks = ParallelFetch.chunks(new ArrayList<String>(distinct), maxIdsPerRequest);
+		List<ArrayList<CardSet>> parts = ParallelFetch.run(chunks.size(), maxParallelRequests, i -> {
+			/* A single id is answered with a set rather than a list. */
+			if( chunks.get(i).size() == 1 ) return listOf(getSet(chunks.get(i).get(0)));
+
+			StringBuilder sb = new StringBuilder();
+			for( String s : chunks.get(i) ) {
+				sb.append(s+","); // Trailing commas don't seem to hurt API call.
+			}
+			return getSetsFromUrl(API_URL+"/sets/"+sb.toString());
+		});
+		if( parts == null ) return null;
+
+		/* The responses needn't be in the order asked for, so put them back in it. */
+		HashMap<String, CardSet> byId = new HashMap<String, CardSet>();
+		for( ArrayList<CardSet> part : parts ) {
+			for( CardSet cs : part ) {
+				if( cs.getId() != null ) byId.put(cs.getId().toUpperCase(Locale.ROOT), cs);
+			}
+		}
+		ArrayList<CardSet> cardSetArray = new ArrayList<CardSet>(ids.size());
+		for( String s : ids ) {
+			CardSet cs = s == null ? null : byId.get(s.toUpperCase(Locale.ROOT));
+			if( cs != null ) cardSetArray.add(cs);
 		}
 
-		String url = API_URL+"/sets/"+sb.toString();
+		return cardSetArray;
+	}
+
+	/* A lone lookup can't tell a missing id from a failed request, so null is left out. */
+	private static <T> ArrayList<T> listOf(T item) {
+		ArrayList<T> list = new ArrayList<T>(1);
+		if( item != null ) list.add(item);
+		return list;
+	}
+
+	private static ArrayList<CardSet> getSetsFromUrl(String url) {
 		JSONArray ja = getArray(url);
+		if( ja == null ) return null;
+		ArrayList<CardSet> cardSetArray = new ArrayList<CardSet>(ja.length());
 		for( int i = 0; i < ja.length(); i++ ) {
 			CardSet cs = new CardSet(ja.getJSONObject(i));
 			if( cs != null ) cardSetArray.add(cs);
 		}
-
 		return cardSetArray;
 	}
+
 	/**
 	 * Request all sets from the database.
 	 * 
@@ -207,6 +441,7 @@ public class Db {
 		ArrayList<CardSet> cardSetArray = new ArrayList<CardSet>();
 		String url = API_URL+"/sets/";
 		JSONArray ja = getArray(url);
+		if( ja == null ) return null;
 		for( int i = 0; i < ja.length(); i++ ) {
 			CardSet cs = new CardSet(ja.getJSONObject(i));
 			if( cs != null ) cardSetArray.add(cs);
@@ -216,24 +451,54 @@ public class Db {
 	}
 
 	/**
-	 * Retrieve cards based upon their multiverse ids.
+	 * Retrieve cards based upon their multiverse ids.  Long lists are split into
+	 * several requests that run in parallel, see {@link #setMaxIdsPerRequest(int)}.
 	 * 
 	 * @param multiverseIds A {@link List} of multiverse ids
-	 * @return An {@link ArrayList} of {@link Card} objects corresponding to the ids.
+	 * @return An {@link ArrayList} of {@link Card} objects corresponding to the ids, in
+	 * the order of the ids, or null if a request failed.  A repeated id, such as four
+	 * copies of a card in a deck list, is fetched once but its card appears at each of
+	 * its positions.  Ids that aren't cards are left out.  A single id is looked up with
+	 * {@link #getCard(int)}, which can't tell a failed request from a missing card,
+	 * so it is left out in either case.
 	 */
 	public static ArrayList<Card> getCards(ArrayList<Integer> multiverseIds) {
-		StringBuilder sb = new StringBuilder();
+		/* An empty list has always asked for every card. */
+		if( multiverseIds.isEmpty() ) return getCardsFromUrl(API_URL+"/cards/");
 
-		/* Make a list of the ids to fetch. */
+		LinkedHashSet<Integer> distinct = new LinkedHashSet<Integer>();
 		for( Integer i : multiverseIds ) {
-			sb.append(i+",");
+			if( i != null ) distinct.add(i);
+		}
+		final List<List<Integer>> chunks = ParallelFetch.chunks(new ArrayList<Integer>(distinct), maxIdsPerRequest);
+		List<ArrayList<Card>> parts = ParallelFetch.run(chunks.size(), maxParallelRequests, n -> {
+			/* A single id is answered with a card rather than a list. */
+			if( chunks.get(n).size() == 1 ) return listOf(getCard(chunks.get(n).get(0)));
+
+			StringBuilder sb = new StringBuilder();
+
+			/* Make a list of the ids to fetch. */
+			for( Integer i : chunks.get(n) ) {
+				sb.append(i+",");
+			}
+			/* Remove trailing ',' */
+			sb.deleteCharAt(sb.length()-1);
+			return getCardsFromUrl(API_URL+"/cards/"+sb.toString());
+		});
+		if( parts == null ) return null;
+
+		/* The responses needn't be in the order asked for, so put them back in it. */
+		HashMap<Integer, Card> byId = new HashMap<Integer, Card>();
+		for( ArrayList<Card> part : parts ) {
+			for( Card c : part ) byId.put(c.getId(), c);
+		}
+		ArrayList<Card> cards = new ArrayList<Card>(multiverseIds.size());
+		for( Integer i : multiverseIds ) {
+			Card c = i == null ? null : byId.get(i);
+			if( c != null ) cards.add(c);
 		}
-		/* Remove trailing ',' */
-		if( multiverseIds.size() > 0 ) sb.deleteCharAt(sb.length()-1);
-		String url = API_URL+"/cards/"+sb.toString();
-		
-		return getCardsFromUrl(url);
 
+		return cards;
 	}
 
 	/**
@@ -280,6 +545,66 @@ public class Db {
 		
 	}
 
+	/**
+	 * Gets the cards in a set by splitting it into pages of {@link #getPageSize()}
+	 * cards, using {@link CardSet#getTotal()}, and fetching the pages at the same time.
+	 * 
+	 * @param setId String set name (3 characters)
+	 * @param parallelism The most pages to fetch at once.
+	 * @return ArrayList<Card> of the cards in the set in page order, or null if the set
+	 * or any page could not be fetched.
+	 */
+	public static ArrayList<Card> getSetCardsInParallel(String setId, int parallelism) {
+		CardSet cs = getSet(setId);
+		if( cs == null ) return null;
+		return getSetCardsInParallel(cs, parallelism);
+	}
+
+	/**
+	 * Gets the cards in a set a page at a time, see {@link #getSetCardsInParallel(String, int)}.
+	 * This saves a request when the {@link CardSet} is already at hand.
+	 * 
+	 * @param cs The set, whose {@link CardSet#getTotal()} decides the pages.
+	 * @param parallelism The most pages to fetch at once.
+	 * @return ArrayList<Card> of the cards in the set in page order, or null if any page
+	 * could not be fetched.
+	 */
+	public static ArrayList<Card> getSetCardsInParallel(CardSet cs, int parallelism) {
+		List<int[]> pages = new ArrayList<int[]>();
+		addPages(pages, 0, cs.getTotal());
+		return fetchPages(Collections.singletonList(cs.getId()), pages, parallelism);
+	}
+
+	/* Appends the [set, start, end] pages covering a set with total cards. */
+	private static void addPages(List<int[]> pages, int set, int total) {
+		/* Sets without a total are asked for in one page. */
+		if( total <= 0 ) {
+			pages.add(new int[] { set, 1, Integer.MAX_VALUE });
+			return;
+		}
+		int size = pageSize;
+		for( int start = 1; start <= total; start += size ) {
+			/* The last page is left open, so cards numbered past the total still come. */
+			int end = total - start < size ? Integer.MAX_VALUE : start + size - 1;
+			pages.add(new int[] { set, start, end });
+		}
+	}
+
+	/* Fetches [set, start, end] pages and joins them, in order, into one list. */
+	private static ArrayList<Card> fetchPages(final List<String> setIds, final List<int[]> pages, int parallelism) {
+		List<ArrayList<Card>> parts = ParallelFetch.run(pages.size(), parallelism, i -> {
+			int[] page = pages.get(i);
+			return getSetCards(setIds.get(page[0]), page[1], page[2]);
+		});
+		if( parts == null ) return null;
+
+		int size = 0;
+		for( ArrayList<Card> part : parts ) size += part.size();
+		ArrayList<Card> cards = new ArrayList<Card>(size);
+		for( ArrayList<Card> part : parts ) cards.addAll(part);
+		return cards;
+	}
+
 	public static ArrayList<Card> getCards(Set<String> fields) {
 		StringBuilder sb = new StringBuilder();
 		for( String s : fields ) {
@@ -294,6 +619,8 @@ public class Db {
 	 * Returns a list of cards matching the supplied query string.  Note that it will not filter for
 	 * size, so a generic or empty query string will return many, many cards.  Non alphanumberic characters
 	 * are removed prior to querying (with the exception of the space and '-' characters).
+	 * For searching as the user types, a {@link TextIndex} over a local copy of the cards
+	 * avoids a request per keystroke.
 	 * 
 	 * @param searchText String representing the text to search for.
 	 * @return ArrayList<Card> matching the query text.
@@ -310,11 +637,57 @@ public class Db {
 	 * @return An {@link ArrayList} of {@link Card} objects.
 	 */
 	public static ArrayList<Card> getCards() {
-		ArrayList<Card> cards = new ArrayList<Card>();
 		String url = API_URL+"/cards/";
 		return getCardsFromUrl(url);
 	}
 
+	/**
+	 * Gets the entire card database by fetching every set in pages, see
+	 * {@link #getSetCardsInParallel(String, int)}.  The pages of all sets share the one
+	 * limit, so the time taken shrinks with the number of connections allowed.
+	 * 
+	 * @param parallelism The most pages to fetch at once.
+	 * @return An {@link ArrayList} of {@link Card} objects, a set at a time in the order
+	 * of {@link #getAllSets()}, or null if any request failed.
+	 */
+	public static ArrayList<Card> getCardsInParallel(int parallelism) {
+		ArrayList<CardSet> sets = getAllSets();
+		if( sets == null ) return null;
+
+		List<String> setIds = new ArrayList<String>(sets.size());
+		List<int[]> pages = new ArrayList<int[]>();
+		for( CardSet cs : sets ) {
+			int set = setIds.size();
+			setIds.add(cs.getId());
+			addPages(pages, set, cs.getTotal());
+		}
+		return fetchPages(setIds, pages, parallelism);
+	}
+
+	/**
+	 * Streams the entire card database one card at a time.  Unlike {@link #getCards()}
+	 * only the card currently being parsed is held in memory, which makes this the
+	 * better choice for syncing the database somewhere else.
+	 * 
+	 * @return A {@link CardIterator} over every card, or null if the request failed.
+	 */
+	public static CardIterator iterateCards() {
+		String url = API_URL+"/cards/";
+		return iterateCardsFromUrl(url);
+	}
+
+	/**
+	 * Streams the cards in a set one card at a time.
+	 * 
+	 * @param setId String set name (3 characters)
+	 * @return A {@link CardIterator} over the cards in the set, or null if the request failed.
+	 * @see #iterateCards()
+	 */
+	public static CardIterator iterateSetCards(String setId) {
+		String url = API_URL+"/sets/"+setId+"/cards/";
+		return iterateCardsFromUrl(url);
+	}
+
 	/**
 	 * 
 	 * @param filters HashMap<String, String> containing a mapping of keys to values.  For example colors and black.
@@ -331,12 +704,17 @@ public class Db {
 		return getCardsFromUrl(sb.toString());
 	}
 
-	private static JSONObject getObject(String url) {
-		JSONObject ja;
+	/* Turns an open response into a result, so fetch() can keep the error handling in one place. */
+	private interface ResponseParser<T> {
+		T parse(JSONTokener tokener);
+	}
+
+	private static <T> T fetch(String url, ResponseParser<T> parser) {
+		T result;
+		InputStream in = null;
 		try {
-			URL ur = new URL(url);
-			JSONTokener tokener = new JSONTokener(ur.openStream());
-			ja = new JSONObject(tokener);
+			in = transport.open(url);
+			result = parser.parse(new UTF8Tokener(in));
 		} catch (JSONException e) {
 			System.err.println("Problem with the JSON?  That isn't good.");
 			e.printStackTrace();
@@ -350,33 +728,26 @@ public class Db {
 			System.err.println("Problem opening an input stream from the URL: "+url);
 			e.printStackTrace();
 			return null;
+		} finally {
+			close(in);
 		}
 
-		return ja;
+		return result;
 	}
 
 	private static JSONArray getArray(String url) {
-		JSONArray ja;
+		return fetch(url, JSONArray::new);
+	}
+
+	/* Closing the response is what lets the transport reuse its connection. */
+	private static void close(InputStream in) {
+		if( in == null ) return;
 		try {
-			URL ur = new URL(url);
-			JSONTokener tokener = new JSONTokener(ur.openStream());
-			ja = new JSONArray(tokener);
-		} catch (JSONException e) {
-			System.err.println("Problem with the JSON?  That isn't good.");
-			e.printStackTrace();
-			return null;
-		} catch (MalformedURLException e) {
-			System.err.println("Check your URL for correctness.");
-			System.err.println("'"+url+"' is malformed for some reason.");
-			e.printStackTrace();
-			return null;
+			in.close();
 		} catch (IOException e) {
-			System.err.println("Problem opening an input stream from the URL: "+url);
+			System.err.println("Problem closing an input stream.");
 			e.printStackTrace();
-			return null;
 		}
-
-		return ja;
 	}
 
 }
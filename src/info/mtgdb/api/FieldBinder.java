@@ -0,0 +1,291 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/*
+ * Stores one JSON value into one field of a Card or CardSet.  A binder is created
+ * once per field, when the class's binder map is built, and knows from the field's
+ * declared type how to read the value (the Kind) and a MethodHandle to store it.
+ * Binding a key is then a single map lookup, a switch on the kind and a direct
+ * store, with no per-key type-name comparisons or Field.set() calls.
+ *
+ * As before, any field whose name matches a JSON key is picked up automatically as
+ * long as its type is one of the kinds below.  A List of some new element type needs
+ * a new Kind.  Dates are int fields marked with @EpochDay.
+ */
+final class FieldBinder {
+
+	/* Marks an int field that holds a date from the API as an epoch day.  See Dates. */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.FIELD)
+	@interface EpochDay {
+	}
+
+	enum Kind {
+		INT, BOOLEAN, STRING, EPOCH_DAY, STRING_LIST, INT_LIST, RULING_LIST, FORMAT_LIST
+	}
+
+	/* Returned by TokenReader.readInt() for null, meaning "leave the field alone". */
+	private static final int NO_INT = Integer.MIN_VALUE;
+
+	private static final MethodType INT_SETTER     = MethodType.methodType(void.class, Object.class, int.class);
+	private static final MethodType BOOLEAN_SETTER = MethodType.methodType(void.class, Object.class, boolean.class);
+	private static final MethodType OBJECT_SETTER  = MethodType.methodType(void.class, Object.class, Object.class);
+
+	final String name;
+	final Kind kind;
+	private final MethodHandle setter;
+
+	private FieldBinder(String name, Kind kind, MethodHandle setter) {
+		this.name = name;
+		this.kind = kind;
+		this.setter = setter;
+	}
+
+	/**
+	 * Builds the binders for every instance field of a class that has a supported type.
+	 * Transient fields are derived from the others rather than read from JSON, and
+	 * are skipped.  Each binder is stored under the field's name and, if caseInsensitive is set, also
+	 * under its lower-cased name.
+	 * 
+	 * @param lookup A lookup from inside the class, so private fields can be bound.
+	 */
+	static HashMap<String, FieldBinder> forClass(MethodHandles.Lookup lookup, boolean caseInsensitive) {
+		HashMap<String, FieldBinder> binders = new HashMap<String, FieldBinder>();
+		for( Field f : lookup.lookupClass().getDeclaredFields() ) {
+			int modifiers = f.getModifiers();
+			if( Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers) ) continue;
+
+			Kind kind = kindOf(f);
+			if( kind == null ) continue;
+
+			MethodHandle setter;
+			try {
+				setter = lookup.unreflectSetter(f);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Can't bind "+f, e);
+			}
+			switch( kind ) {
+			case INT:
+			case EPOCH_DAY:
+				setter = setter.asType(INT_SETTER);
+				break;
+			case BOOLEAN:
+				setter = setter.asType(BOOLEAN_SETTER);
+				break;
+			default:
+				setter = setter.asType(OBJECT_SETTER);
+			}
+
+			FieldBinder binder = new FieldBinder(f.getName(), kind, setter);
+			binders.put(f.getName(), binder);
+			if( caseInsensitive ) binders.put(f.getName().toLowerCase(), binder);
+		}
+		return binders;
+	}
+
+	private static Kind kindOf(Field f) {
+		Class<?> type = f.getType();
+		if( type == int.class ) return f.isAnnotationPresent(EpochDay.class) ? Kind.EPOCH_DAY : Kind.INT;
+		if( type == boolean.class ) return Kind.BOOLEAN;
+		if( type == String.class ) return Kind.STRING;
+		if( type == List.class ) {
+			Type generic = f.getGenericType();
+			if( !(generic instanceof ParameterizedType) ) return null;
+			Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+			if( element == String.class ) return Kind.STRING_LIST;
+			if( element == Integer.class ) return Kind.INT_LIST;
+			if( element == Ruling.class ) return Kind.RULING_LIST;
+			if( element == Format.class ) return Kind.FORMAT_LIST;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the next value from the tokener into this binder's field.  A JSON null
+	 * leaves the field at its default, except for lists, which become null.
+	 */
+	void bind(Object target, JSONTokener x) throws JSONException {
+		switch( kind ) {
+		case INT:
+			int i = TokenReader.readInt(x, NO_INT);
+			if( i != NO_INT ) setInt(target, i);
+			break;
+		case BOOLEAN:
+			setBoolean(target, TokenReader.readBoolean(x));
+			break;
+		case STRING:
+			String s = TokenReader.readString(x);
+			if( s != null ) set(target, s);
+			break;
+		case EPOCH_DAY:
+			int day = Dates.parseEpochDay(TokenReader.readString(x));
+			if( day != Dates.EPOCH_DAY_NOT_SET ) setInt(target, day);
+			break;
+		case STRING_LIST:
+			List<String> strings = null;
+			if( TokenReader.beginArray(x) ) {
+				strings = new ArrayList<String>();
+				while( TokenReader.nextElement(x) ) strings.add(TokenReader.readString(x));
+			}
+			set(target, strings);
+			break;
+		case INT_LIST:
+			List<Integer> ints = null;
+			if( TokenReader.beginArray(x) ) {
+				ints = new ArrayList<Integer>();
+				while( TokenReader.nextElement(x) ) ints.add(TokenReader.readInt(x, 0));
+			}
+			set(target, ints);
+			break;
+		case RULING_LIST:
+			List<Ruling> rulings = null;
+			if( TokenReader.beginArray(x) ) {
+				rulings = new ArrayList<Ruling>();
+				while( TokenReader.nextElement(x) ) rulings.add(new Ruling(x));
+			}
+			set(target, rulings);
+			break;
+		case FORMAT_LIST:
+			List<Format> formats = null;
+			if( TokenReader.beginArray(x) ) {
+				formats = new ArrayList<Format>();
+				while( TokenReader.nextElement(x) ) formats.add(new Format(x));
+			}
+			set(target, formats);
+			break;
+		}
+	}
+
+	/**
+	 * Copies json[key] into this binder's field.  A value of the wrong type is reported
+	 * and skipped so one bad field doesn't lose the rest of the object.
+	 */
+	void bind(Object target, JSONObject json, String key) {
+		try {
+			switch( kind ) {
+			case INT:
+				setInt(target, json.getInt(key));
+				break;
+			case BOOLEAN:
+				setBoolean(target, json.getBoolean(key));
+				break;
+			case STRING:
+				Object o = json.get(key);
+				if( o != JSONObject.NULL ) set(target, o.toString());
+				break;
+			case EPOCH_DAY:
+				Object d = json.get(key);
+				int day = d == JSONObject.NULL ? Dates.EPOCH_DAY_NOT_SET : Dates.parseEpochDay(d.toString());
+				if( day != Dates.EPOCH_DAY_NOT_SET ) setInt(target, day);
+				break;
+			case STRING_LIST:
+				JSONArray ja = json.getJSONArray(key);
+				List<String> strings = new ArrayList<String>(ja.length());
+				for( int i = 0; i < ja.length(); i++ ) strings.add(ja.getString(i));
+				set(target, strings);
+				break;
+			case INT_LIST:
+				ja = json.getJSONArray(key);
+				List<Integer> ints = new ArrayList<Integer>(ja.length());
+				for( int i = 0; i < ja.length(); i++ ) ints.add(ja.getInt(i));
+				set(target, ints);
+				break;
+			case RULING_LIST:
+				ja = json.getJSONArray(key);
+				List<Ruling> rulings = new ArrayList<Ruling>(ja.length());
+				for( int i = 0; i < ja.length(); i++ ) rulings.add(new Ruling(ja.getJSONObject(i)));
+				set(target, rulings);
+				break;
+			case FORMAT_LIST:
+				ja = json.getJSONArray(key);
+				List<Format> formats = new ArrayList<Format>(ja.length());
+				for( int i = 0; i < ja.length(); i++ ) formats.add(new Format(ja.getJSONObject(i)));
+				set(target, formats);
+				break;
+			}
+		} catch (JSONException e) {
+			e.printStackTrace();
+			System.err.println("s = "+key);
+			System.err.println("Kind = "+kind);
+		}
+	}
+
+	void setInt(Object target, int value) {
+		try {
+			setter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	void setBoolean(Object target, boolean value) {
+		try {
+			setter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	void set(Object target, Object value) {
+		try {
+			setter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+}
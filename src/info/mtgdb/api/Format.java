@@ -25,19 +25,41 @@ THE SOFTWARE.
 */
 
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 public class Format {
 
 	private String name;
 	private String legality;
 	
+	/**
+	 * Creates an empty Format, to be filled in with the setters.
+	 */
+	public Format() {
+
+	}
+
 	public Format(JSONObject json) {
-		for( String s : JSONObject.getNames(json) ) {
-			if( s.matches("name") ) {
-				setName(json.getString(s));
+		if( json.has("name") ) setName(json.getString("name"));
+		if( json.has("legality") ) setLegality(json.getString("legality"));
+	}
+	
+	/**
+	 * Read a Format straight from a tokener positioned at its JSON object.
+	 * 
+	 * @param x
+	 */
+	public Format(JSONTokener x) {
+		TokenReader.beginObject(x);
+		for( String s = TokenReader.nextKey(x); s != null; s = TokenReader.nextKey(x) ) {
+			if( s.equals("name") ) {
+				setName(TokenReader.readString(x));
+			}
+			else if( s.equals("legality") ) {
+				setLegality(TokenReader.readString(x));
 			}
-			else if( s.matches("legality") ) {
-				setLegality(json.getString(s));
+			else {
+				TokenReader.skipValue(x);
 			}
 		}
 	}
@@ -62,4 +84,11 @@ public class Format {
 		this.legality = legality;
 	}
 
+	/**
+	 * @return The legality as a {@link Legality}.
+	 */
+	public Legality getLegalityValue() {
+		return Legality.fromText(legality);
+	}
+
 }
@@ -0,0 +1,291 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Typo-tolerant lookup of cards by name, for resolving hand-typed names such as
+ * "Gaeas Cradel" that {@link Db#getCards(String)} would find nothing for.
+ * <p>
+ * Names are compared in their search name form, lower-case letters and digits only,
+ * so spacing and punctuation never count as typos.  A lookup returns the cards whose
+ * name is within an edit distance (insertions, deletions and substitutions) of the
+ * one typed, closest first.
+ * <p>
+ * To avoid comparing against every name, the index keeps the names containing each
+ * trigram (three letters in a row).  One edit changes at most three of a name's
+ * trigrams, so only names sharing enough trigrams with the typed one can be close
+ * enough, and only those are compared in full.  Names too short for that to rule
+ * anything out are found through their length instead.
+ * <p>
+ * The index is immutable once built and safe to share between threads.
+ */
+public class FuzzyNameIndex {
+
+	/* Padding so the first and last letters are in as many trigrams as the others. */
+	private static final char START = '\u0002';
+	private static final char END = '\u0003';
+
+	/* The distinct search names, sorted, and the multiverse ids of the cards with each. */
+	private final String[] names;
+	private final int[][] ids;
+	/* The names containing each trigram, by number, ascending. */
+	private final Map<Long, int[]> trigrams;
+	/* The names of each length, by number. */
+	private final int[][] byLength;
+
+	/**
+	 * @param cards The cards to index.  Only the id, name and search name are used.
+	 */
+	public FuzzyNameIndex(Collection<Card> cards) {
+		TreeMap<String, ArrayList<Integer>> grouped = new TreeMap<String, ArrayList<Integer>>();
+		for( Card c : cards ) {
+			String key = key(c);
+			if( key.isEmpty() ) continue;
+			ArrayList<Integer> list = grouped.get(key);
+			if( list == null ) {
+				list = new ArrayList<Integer>(1);
+				grouped.put(key, list);
+			}
+			list.add(c.getId());
+		}
+
+		int n = grouped.size();
+		this.names = new String[n];
+		this.ids = new int[n][];
+		HashMap<Long, GrowableInts> postings = new HashMap<Long, GrowableInts>();
+		int maxLength = 0;
+		int i = 0;
+		for( Map.Entry<String, ArrayList<Integer>> e : grouped.entrySet() ) {
+			names[i] = e.getKey();
+			int[] a = new int[e.getValue().size()];
+			for( int j = 0; j < a.length; j++ ) a[j] = e.getValue().get(j);
+			Arrays.sort(a);
+			ids[i] = a;
+			maxLength = Math.max(maxLength, names[i].length());
+
+			long last = -1;
+			long[] grams = trigrams(names[i]);
+			Arrays.sort(grams);
+			for( long g : grams ) {
+				/* Each name once per trigram, however often it has it. */
+				if( g == last ) continue;
+				last = g;
+				GrowableInts list = postings.get(g);
+				if( list == null ) {
+					list = new GrowableInts();
+					postings.put(g, list);
+				}
+				list.add(i);
+			}
+			i++;
+		}
+
+		HashMap<Long, int[]> trigrams = new HashMap<Long, int[]>(postings.size() * 2);
+		for( Map.Entry<Long, GrowableInts> e : postings.entrySet() ) trigrams.put(e.getKey(), e.getValue().toArray());
+		this.trigrams = trigrams;
+
+		GrowableInts[] lengths = new GrowableInts[maxLength + 1];
+		for( int k = 0; k < n; k++ ) {
+			int len = names[k].length();
+			if( lengths[len] == null ) lengths[len] = new GrowableInts();
+			lengths[len].add(k);
+		}
+		this.byLength = new int[maxLength + 1][];
+		for( int len = 0; len <= maxLength; len++ ) byLength[len] = lengths[len] == null ? new int[0] : lengths[len].toArray();
+	}
+
+	private static final class GrowableInts {
+		int[] values = new int[4];
+		int size;
+
+		void add(int v) {
+			if( size == values.length ) values = Arrays.copyOf(values, size * 2);
+			values[size++] = v;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * @return The number of distinct names indexed.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @param name A card name as typed, in any case, with or without its spaces and
+	 * punctuation.
+	 * @param maxDistance The most edits the typed name may be away from a card's.
+	 * @param limit The most ids to return, or 0 for all of them.
+	 * @return The multiverse ids of the cards whose name is close enough, closest name
+	 * first, then alphabetically, with every printing of a name together.
+	 */
+	public int[] find(String name, int maxDistance, int limit) {
+		String query = NameTrie.compact(name.toLowerCase(Locale.ROOT));
+		int[] candidates = candidates(query, maxDistance);
+
+		/* Sort key: the distance above the name number, which is alphabetical order. */
+		long[] matches = new long[candidates.length];
+		int count = 0;
+		for( int c : candidates ) {
+			int d = distance(query, names[c], maxDistance);
+			if( d <= maxDistance ) matches[count++] = ((long) d << 32) | c;
+		}
+		Arrays.sort(matches, 0, count);
+
+		GrowableInts result = new GrowableInts();
+		for( int m = 0; m < count; m++ ) {
+			for( int id : ids[(int) matches[m]] ) {
+				if( limit > 0 && result.size >= limit ) return result.toArray();
+				result.add(id);
+			}
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * @param name A card name as typed.
+	 * @return The multiverse ids of the cards with the closest name within two edits,
+	 * or an empty array if there is none.
+	 */
+	public int[] findClosest(String name) {
+		String query = NameTrie.compact(name.toLowerCase(Locale.ROOT));
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for( int c : candidates(query, 2) ) {
+			int d = distance(query, names[c], Math.min(2, bestDistance));
+			if( d < bestDistance || (d == bestDistance && c < best) ) {
+				best = c;
+				bestDistance = d;
+			}
+		}
+		return best < 0 || bestDistance > 2 ? new int[0] : ids[best].clone();
+	}
+
+	/* The names that may be within maxDistance of the query, ascending. */
+	private int[] candidates(String query, int maxDistance) {
+		int len = query.length();
+		int from = Math.max(0, len - maxDistance);
+		int to = Math.min(byLength.length - 1, len + maxDistance);
+
+		long[] grams = trigrams(query);
+		/* Trigrams a close enough name must share with the query. */
+		int needed = grams.length - 3 * maxDistance;
+		GrowableInts result = new GrowableInts();
+		if( needed <= 0 ) {
+			for( int l = from; l <= to; l++ ) {
+				for( int c : byLength[l] ) result.add(c);
+			}
+			int[] a = result.toArray();
+			Arrays.sort(a);
+			return a;
+		}
+
+		int[] counts = new int[names.length];
+		for( long g : grams ) {
+			int[] list = trigrams.get(g);
+			if( list == null ) continue;
+			for( int c : list ) {
+				if( ++counts[c] == needed ) {
+					int l = names[c].length();
+					if( l >= from && l <= to ) result.add(c);
+				}
+			}
+		}
+		int[] a = result.toArray();
+		Arrays.sort(a);
+		return a;
+	}
+
+	/*
+	 * The Levenshtein distance between a and b, or max + 1 as soon as it is known to
+	 * be more than max.  Only the diagonal band of width 2 * max + 1 can hold a
+	 * distance that small, so only that band is computed.
+	 */
+	static int distance(String a, String b, int max) {
+		int n = a.length();
+		int m = b.length();
+		if( Math.abs(n - m) > max ) return max + 1;
+		int big = max + 1;
+		int[] prev = new int[m + 1];
+		int[] cur = new int[m + 1];
+		for( int j = 0; j <= m; j++ ) prev[j] = j <= max ? j : big;
+		for( int i = 1; i <= n; i++ ) {
+			int lo = Math.max(1, i - max);
+			int hi = Math.min(m, i + max);
+			cur[0] = i <= max ? i : big;
+			if( lo > 1 ) cur[lo - 1] = big;
+			int rowMin = cur[0];
+			char ca = a.charAt(i - 1);
+			for( int j = lo; j <= hi; j++ ) {
+				int d = prev[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+				d = Math.min(d, prev[j] + 1);
+				d = Math.min(d, cur[j - 1] + 1);
+				cur[j] = Math.min(d, big);
+				rowMin = Math.min(rowMin, cur[j]);
+			}
+			if( hi < m ) cur[hi + 1] = big;
+			if( rowMin > max ) return big;
+			int[] t = prev;
+			prev = cur;
+			cur = t;
+		}
+		return Math.min(prev[m], big);
+	}
+
+	/* The trigrams of a name padded with two characters at each end, packed into longs. */
+	private static long[] trigrams(String s) {
+		int len = s.length();
+		long[] grams = new long[len + 2];
+		for( int i = 0; i < len + 2; i++ ) {
+			long g = 0;
+			for( int k = i - 2; k <= i; k++ ) {
+				char ch = k < 0 ? START : k >= len ? END : s.charAt(k);
+				g = (g << 16) | ch;
+			}
+			grams[i] = g;
+		}
+		return grams;
+	}
+
+	private static String key(Card c) {
+		String searchName = c.getSearchName();
+		if( searchName != null && !Card.STR_VALUE_NOT_SET.equals(searchName) ) return NameTrie.compact(searchName);
+		String name = c.getName();
+		if( name == null || Card.STR_VALUE_NOT_SET.equals(name) ) return "";
+		return NameTrie.compact(name);
+	}
+}
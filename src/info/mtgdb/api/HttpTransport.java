@@ -0,0 +1,251 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default {@link Transport}.  Connections are kept alive and reused between
+ * calls, so repeated lookups against api.mtgdb.info only pay for the TCP and TLS
+ * handshakes once per pooled connection instead of once per call.
+ * <p>
+ * Idle connections are pooled by the JDK's HTTP keep-alive cache, which only takes
+ * a connection back once its response has been read to the end and closed.  This
+ * class makes sure that happens (including for error responses) and caps the
+ * number of connections that may be open to any one host at the same time.  Callers
+ * that go over the cap wait for a connection to be handed back, for at most the
+ * connect timeout.
+ * <p>
+ * The JDK sizes its idle pool with the <code>http.maxConnections</code> system
+ * property (5 by default), which it only reads before the first connection is
+ * made.  That setting is global to the process, so this class leaves it alone.
+ * An application that raises the per-host maximum above 5 and wants every one of
+ * those connections kept alive should set the property to match at startup:
+ * 
+ * <pre>
+ * System.setProperty("http.maxConnections", "16");
+ * Db.setTransport(new HttpTransport(16, HttpTransport.DEFAULT_CONNECT_TIMEOUT, HttpTransport.DEFAULT_READ_TIMEOUT));
+ * </pre>
+ */
+public class HttpTransport implements Transport {
+
+	/**
+	 * Default maximum number of simultaneous connections to a single host.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+	/**
+	 * Default connect timeout, in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	/**
+	 * Default read timeout, in milliseconds.  The full card dump is one long response,
+	 * so this bounds the time between reads rather than the length of the download.
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+	private volatile int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+	private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+
+	/* One semaphore per "host:port", sized to maxConnectionsPerHost when first used. */
+	private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<String, Semaphore>();
+
+	/**
+	 * Creates a transport with the default limits and timeouts.
+	 */
+	public HttpTransport() {
+		this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * @param maxConnectionsPerHost Maximum number of connections open to a single host at once.
+	 * @param connectTimeout Connect timeout in milliseconds, 0 to wait forever.
+	 * @param readTimeout Read timeout in milliseconds, 0 to wait forever.
+	 */
+	public HttpTransport(int maxConnectionsPerHost, int connectTimeout, int readTimeout) {
+		setMaxConnectionsPerHost(maxConnectionsPerHost);
+		setConnectTimeout(connectTimeout);
+		setReadTimeout(readTimeout);
+	}
+
+	public InputStream open(String url) throws IOException {
+		URL u = new URL(url);
+		Semaphore permits = permitsFor(u);
+		try {
+			/* Waiting for a connection counts against the connect timeout, so a stream
+			 * that is never closed can't hang every later caller.
+			 */
+			int timeout = connectTimeout;
+			if( timeout == 0 ) {
+				permits.acquire();
+			} else if( !permits.tryAcquire(timeout, TimeUnit.MILLISECONDS) ) {
+				throw new IOException("Timed out waiting for a connection to "+u.getHost());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for a connection to "+u.getHost());
+		}
+
+		try {
+			URLConnection connection = u.openConnection();
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(readTimeout);
+			connection.setUseCaches(false);
+			connection.setRequestProperty("Accept", "application/json");
+			connection.setRequestProperty("Accept-Encoding", "gzip");
+
+			if( connection instanceof HttpURLConnection ) {
+				HttpURLConnection http = (HttpURLConnection) connection;
+				int status = http.getResponseCode();
+				if( status >= 400 ) {
+					/* Reading the error body to the end lets the connection go back to the pool. */
+					drain(http.getErrorStream());
+					throw new IOException("HTTP "+status+" from "+url);
+				}
+			}
+
+			InputStream in = connection.getInputStream();
+			if( "gzip".equalsIgnoreCase(connection.getContentEncoding()) ) {
+				in = new GZIPInputStream(in);
+			}
+			return new PooledStream(in, permits);
+		} catch (IOException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Only affects hosts that have not been contacted yet through this transport.
+	 * 
+	 * @param maxConnectionsPerHost Must be at least 1.
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		if( maxConnectionsPerHost < 1 ) {
+			throw new IllegalArgumentException("maxConnectionsPerHost must be at least 1: "+maxConnectionsPerHost);
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * @param connectTimeout Connect timeout in milliseconds, 0 to wait forever.
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		if( connectTimeout < 0 ) {
+			throw new IllegalArgumentException("connectTimeout can not be negative: "+connectTimeout);
+		}
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * @param readTimeout Read timeout in milliseconds, 0 to wait forever.
+	 */
+	public void setReadTimeout(int readTimeout) {
+		if( readTimeout < 0 ) {
+			throw new IllegalArgumentException("readTimeout can not be negative: "+readTimeout);
+		}
+		this.readTimeout = readTimeout;
+	}
+
+	private Semaphore permitsFor(URL u) {
+		int port = u.getPort() == -1 ? u.getDefaultPort() : u.getPort();
+		String key = u.getHost().toLowerCase()+":"+port;
+		Semaphore permits = hostPermits.get(key);
+		if( permits == null ) {
+			Semaphore created = new Semaphore(maxConnectionsPerHost, true);
+			permits = hostPermits.putIfAbsent(key, created);
+			if( permits == null ) permits = created;
+		}
+		return permits;
+	}
+
+	private static void drain(InputStream in) {
+		if( in == null ) return;
+		byte[] buf = new byte[4096];
+		try {
+			while( in.read(buf) != -1 ) {
+				/* Discard. */
+			}
+		} catch (IOException e) {
+			/* The connection won't be reused, which is all this costs us. */
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				/* Ignore. */
+			}
+		}
+	}
+
+	/* Hands the host permit back exactly once, when the caller closes the stream. */
+	private static class PooledStream extends FilterInputStream {
+
+		private final Semaphore permits;
+		private boolean closed = false;
+
+		PooledStream(InputStream in, Semaphore permits) {
+			super(in);
+			this.permits = permits;
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (this) {
+				if( closed ) return;
+				closed = true;
+			}
+			try {
+				super.close();
+			} finally {
+				permits.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+/**
+ * Whether a card may be played in a format, as given by a {@link Format}'s legality.
+ * Cards with no entry for a format at all are {@link #NOT_LEGAL} in it.
+ */
+public enum Legality {
+	NOT_LEGAL("Not Legal"),
+	LEGAL("Legal"),
+	RESTRICTED("Restricted"),
+	BANNED("Banned");
+
+	private static final Legality[] VALUES = values();
+
+	private final String text;
+
+	private Legality(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * @return The legality as the web service API writes it, such as "Legal".
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return true for {@link #LEGAL} and {@link #RESTRICTED}: the card may be played.
+	 */
+	public boolean isPlayable() {
+		return this == LEGAL || this == RESTRICTED;
+	}
+
+	/**
+	 * @param text A legality as the web service API writes it, in any case.
+	 * @return The legality, or {@link #NOT_LEGAL} if the text is null or not one of them.
+	 */
+	public static Legality fromText(String text) {
+		if( text == null ) return NOT_LEGAL;
+		String trimmed = text.trim();
+		for( Legality l : VALUES ) {
+			if( l.text.equalsIgnoreCase(trimmed) ) return l;
+		}
+		return NOT_LEGAL;
+	}
+
+	/* Codes stored by LegalityMatrix. */
+	static Legality fromCode(int code) {
+		return VALUES[code];
+	}
+}
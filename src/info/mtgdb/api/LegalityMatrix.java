@@ -0,0 +1,204 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The legality of a fixed list of cards in every format they mention, for deck
+ * checks that would otherwise compare {@link Format} names and legalities as
+ * strings for every card and format on every edit.
+ * <p>
+ * Format names are interned into small codes, numbered in the order first seen;
+ * look a format's code up once with {@link #getFormatCode(String)}.  The legality
+ * of every card in every format is then a single byte in one array, and for each
+ * format the cards that may be played in it (legal or restricted) are kept as a
+ * {@link BitSet}:
+ * <pre>
+ * LegalityMatrix legality = new LegalityMatrix(store.getCards());
+ * int modern = legality.getFormatCode("Modern");
+ * for( Card c : deck ) {
+ *     if( !legality.getLegality(c, modern).isPlayable() ) ...
+ * }
+ * </pre>
+ * Cards are identified by their ordinal, their position in the collection the
+ * matrix was built from, as in {@link CardIndex}, or by their multiverse id.  The
+ * matrix is immutable once built and safe to share between threads.
+ */
+public class LegalityMatrix {
+
+	private final int size;
+	private final String[] formatNames;
+	private final HashMap<String, Integer> formatCodes;
+	/* Legality ordinals, at [ordinal * formatNames.length + format]. */
+	private final byte[] cells;
+	/* By format, the cards that may be played in it. */
+	private final BitSet[] playable;
+	/* Multiverse id above ordinal, sorted, for looking cards up by id. */
+	private final long[] idOrdinals;
+
+	/**
+	 * @param cards The cards.  Only their ids and formats are read.
+	 */
+	public LegalityMatrix(Collection<Card> cards) {
+		size = cards.size();
+
+		/* Intern the format names first, so the width of the matrix is known. */
+		ArrayList<String> names = new ArrayList<String>();
+		HashMap<String, Integer> codes = new HashMap<String, Integer>();
+		for( Card c : cards ) {
+			if( c.getFormats() == null ) continue;
+			for( Format f : c.getFormats() ) {
+				if( f == null || f.getName() == null ) continue;
+				String key = f.getName().toLowerCase(Locale.ROOT);
+				if( !codes.containsKey(key) ) {
+					codes.put(key, names.size());
+					names.add(f.getName());
+				}
+			}
+		}
+		formatNames = names.toArray(new String[names.size()]);
+		formatCodes = codes;
+
+		int width = formatNames.length;
+		cells = new byte[size * width];
+		playable = new BitSet[width];
+		for( int f = 0; f < width; f++ ) playable[f] = new BitSet(size);
+		idOrdinals = new long[size];
+
+		int ordinal = 0;
+		for( Card c : cards ) {
+			idOrdinals[ordinal] = ((long) c.getId() << 32) | ordinal;
+			if( c.getFormats() != null ) {
+				for( Format f : c.getFormats() ) {
+					if( f == null || f.getName() == null ) continue;
+					int code = codes.get(f.getName().toLowerCase(Locale.ROOT));
+					Legality l = Legality.fromText(f.getLegality());
+					cells[ordinal * width + code] = (byte) l.ordinal();
+					if( l.isPlayable() ) playable[code].set(ordinal);
+					else playable[code].clear(ordinal);
+				}
+			}
+			ordinal++;
+		}
+		Arrays.sort(idOrdinals);
+	}
+
+	/**
+	 * @return The number of cards in the matrix.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The names of the formats, indexed by their codes.
+	 */
+	public List<String> getFormatNames() {
+		return Collections.unmodifiableList(Arrays.asList(formatNames));
+	}
+
+	/**
+	 * @param name A format name in any case, such as "Modern".
+	 * @return The format's code, or -1 if no card mentions the format.
+	 */
+	public int getFormatCode(String name) {
+		Integer code = name == null ? null : formatCodes.get(name.toLowerCase(Locale.ROOT));
+		return code == null ? -1 : code;
+	}
+
+	/**
+	 * @param ordinal A card's position in the collection the matrix was built from.
+	 * @param format A format code, or -1.
+	 * @return The card's legality in the format.
+	 */
+	public Legality getLegality(int ordinal, int format) {
+		if( format < 0 ) return Legality.NOT_LEGAL;
+		return Legality.fromCode(cells[ordinal * formatNames.length + format]);
+	}
+
+	/**
+	 * @param c A card in the matrix, looked up by its multiverse id.
+	 * @param format A format code, or -1.
+	 * @return The card's legality in the format, or {@link Legality#NOT_LEGAL} if the
+	 * card is not in the matrix.
+	 */
+	public Legality getLegality(Card c, int format) {
+		int ordinal = ordinalOf(c.getId());
+		return ordinal < 0 ? Legality.NOT_LEGAL : getLegality(ordinal, format);
+	}
+
+	/**
+	 * @param id A multiverse id.
+	 * @return The ordinal of the card with that id, or -1 if it isn't in the matrix.
+	 */
+	public int ordinalOf(int id) {
+		int lo = 0;
+		int hi = size - 1;
+		while( lo <= hi ) {
+			int mid = (lo + hi) >>> 1;
+			int midId = (int) (idOrdinals[mid] >> 32);
+			if( midId < id ) lo = mid + 1;
+			else if( midId > id ) hi = mid - 1;
+			else return (int) idOrdinals[mid];
+		}
+		return -1;
+	}
+
+	/**
+	 * @param format A format code, or -1.
+	 * @return The ordinals of the cards that are legal or restricted in the format,
+	 * in a {@link BitSet} the caller owns and may combine with {@link CardIndex} lookups.
+	 */
+	public BitSet getPlayableCards(int format) {
+		return format < 0 ? new BitSet() : (BitSet) playable[format].clone();
+	}
+
+	/**
+	 * @param format A format code, or -1.
+	 * @param legality A legality.
+	 * @return The ordinals of the cards with exactly that legality in the format.
+	 */
+	public BitSet getCards(int format, Legality legality) {
+		BitSet b = new BitSet(size);
+		int width = formatNames.length;
+		if( format < 0 ) {
+			if( legality == Legality.NOT_LEGAL ) b.set(0, size);
+			return b;
+		}
+		byte code = (byte) legality.ordinal();
+		for( int i = 0, cell = format; i < size; i++, cell += width ) {
+			if( cells[cell] == code ) b.set(i);
+		}
+		return b;
+	}
+}
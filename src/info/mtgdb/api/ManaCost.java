@@ -0,0 +1,249 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+/**
+ * Mana costs parsed into a single long, so that questions such as "at most two blue
+ * pips" are a shift and a mask rather than a pass over the cost's text.  A
+ * {@link Card} parses its cost once, when it is read, see
+ * {@link Card#getParsedManaCost()}:
+ * 
+ * <pre>
+ * long cost = card.getParsedManaCost();
+ * if( ManaCost.pips(cost, Color.BLUE) &lt;= 2 &amp;&amp; ManaCost.x(cost) == 0 ) ...
+ * </pre>
+ * 
+ * Costs are read in either of the forms "2WW" and "{2}{W}{W}".  Within braces,
+ * hybrid symbols such as {W/U} and {2/W} and Phyrexian symbols such as {W/P} are
+ * understood as well.  The long holds, from the lowest bits up:
+ * <ul>
+ * <li>the generic mana, 8 bits;</li>
+ * <li>the pips of each {@link Color} in enum order, then colorless {C} pips, then X
+ * (and Y and Z) symbols, then hybrid symbols, then Phyrexian symbols, 4 bits each;</li>
+ * <li>the mask of every color the cost mentions, hybrid and Phyrexian symbols included, 5 bits;</li>
+ * <li>one bit set if the cost had a symbol that wasn't understood.</li>
+ * </ul>
+ * Counts too big for their bits are capped.  A cost that is not set is {@link #NOT_SET};
+ * an empty cost, as lands have, is 0.
+ */
+public final class ManaCost {
+
+	/**
+	 * The parsed form of a mana cost that is not set.
+	 */
+	public static final long NOT_SET = -1L;
+
+	private static final int GENERIC_BITS = 8;
+	private static final int COUNT_BITS = 4;
+	private static final int PIPS_SHIFT = GENERIC_BITS;
+	private static final int COLORLESS_SHIFT = PIPS_SHIFT + 5 * COUNT_BITS;
+	private static final int X_SHIFT = COLORLESS_SHIFT + COUNT_BITS;
+	private static final int HYBRID_SHIFT = X_SHIFT + COUNT_BITS;
+	private static final int PHYREXIAN_SHIFT = HYBRID_SHIFT + COUNT_BITS;
+	private static final int COLORS_SHIFT = PHYREXIAN_SHIFT + COUNT_BITS;
+	private static final int UNKNOWN_SHIFT = COLORS_SHIFT + 5;
+
+	private static final int GENERIC_MAX = (1 << GENERIC_BITS) - 1;
+	private static final int COUNT_MAX = (1 << COUNT_BITS) - 1;
+
+	private ManaCost() {
+
+	}
+
+	/**
+	 * @param manaCost A mana cost such as "2WW", or null or {@link Card#STR_VALUE_NOT_SET}.
+	 * @return The parsed cost.
+	 */
+	public static long parse(String manaCost) {
+		if( manaCost == null || Card.STR_VALUE_NOT_SET.equals(manaCost) ) return NOT_SET;
+
+		long cost = 0;
+		int length = manaCost.length();
+		int i = 0;
+		while( i < length ) {
+			char ch = manaCost.charAt(i);
+			if( ch == '{' ) {
+				int end = manaCost.indexOf('}', i + 1);
+				if( end < 0 ) end = length;
+				cost = addSymbol(cost, manaCost, i + 1, end);
+				i = end + 1;
+			}
+			else if( ch >= '0' && ch <= '9' ) {
+				int end = i;
+				while( end < length && manaCost.charAt(end) >= '0' && manaCost.charAt(end) <= '9' ) end++;
+				cost = addSymbol(cost, manaCost, i, end);
+				i = end;
+			}
+			else if( Character.isWhitespace(ch) ) {
+				i++;
+			}
+			else {
+				cost = addSymbol(cost, manaCost, i, i + 1);
+				i++;
+			}
+		}
+		return cost;
+	}
+
+	/* Adds the symbol s[from, to) to the cost. */
+	private static long addSymbol(long cost, String s, int from, int to) {
+		if( from >= to ) return cost;
+		int slash = s.indexOf('/', from);
+		if( slash >= 0 && slash < to ) {
+			String a = s.substring(from, slash).trim();
+			String b = s.substring(slash + 1, to).trim();
+			if( b.equalsIgnoreCase("P") ) {
+				Color c = a.length() == 1 ? Color.fromSymbol(a.charAt(0)) : null;
+				if( c == null ) return cost | (1L << UNKNOWN_SHIFT);
+				return add(cost, PHYREXIAN_SHIFT, 1) | ((long) c.getBit() << COLORS_SHIFT);
+			}
+			int mask = hybridColor(a) | hybridColor(b);
+			if( mask < 0 ) return cost | (1L << UNKNOWN_SHIFT);
+			return add(cost, HYBRID_SHIFT, 1) | ((long) mask << COLORS_SHIFT);
+		}
+
+		char first = s.charAt(from);
+		if( first >= '0' && first <= '9' ) {
+			int generic = 0;
+			for( int i = from; i < to; i++ ) {
+				char ch = s.charAt(i);
+				if( ch < '0' || ch > '9' ) return cost | (1L << UNKNOWN_SHIFT);
+				generic = Math.min(generic * 10 + (ch - '0'), GENERIC_MAX);
+			}
+			long current = cost & GENERIC_MAX;
+			return (cost & ~(long) GENERIC_MAX) | Math.min(current + generic, GENERIC_MAX);
+		}
+		if( to - from != 1 ) return cost | (1L << UNKNOWN_SHIFT);
+
+		char upper = Character.toUpperCase(first);
+		Color c = Color.fromSymbol(upper);
+		if( c != null ) {
+			return add(cost, PIPS_SHIFT + c.ordinal() * COUNT_BITS, 1) | ((long) c.getBit() << COLORS_SHIFT);
+		}
+		switch( upper ) {
+		case 'C':
+			return add(cost, COLORLESS_SHIFT, 1);
+		case 'X':
+		case 'Y':
+		case 'Z':
+			return add(cost, X_SHIFT, 1);
+		default:
+			return cost | (1L << UNKNOWN_SHIFT);
+		}
+	}
+
+	/* The color bit of one half of a hybrid symbol, 0 for a number, or -1. */
+	private static int hybridColor(String half) {
+		if( half.isEmpty() ) return -1;
+		if( half.chars().allMatch(ch -> ch >= '0' && ch <= '9') ) return 0;
+		Color c = half.length() == 1 ? Color.fromSymbol(half.charAt(0)) : null;
+		return c == null ? -1 : c.getBit();
+	}
+
+	/* Adds n to the 4-bit count at shift, capped. */
+	private static long add(long cost, int shift, int n) {
+		int current = count(cost, shift);
+		int updated = Math.min(current + n, COUNT_MAX);
+		return (cost & ~((long) COUNT_MAX << shift)) | ((long) updated << shift);
+	}
+
+	private static int count(long cost, int shift) {
+		return (int) (cost >>> shift) & COUNT_MAX;
+	}
+
+	/**
+	 * @return true unless the cost is {@link #NOT_SET}.
+	 */
+	public static boolean isSet(long cost) {
+		return cost != NOT_SET;
+	}
+
+	/**
+	 * @return The generic mana in the cost, such as 2 for "2WW".
+	 */
+	public static int generic(long cost) {
+		return cost == NOT_SET ? 0 : (int) cost & GENERIC_MAX;
+	}
+
+	/**
+	 * @return The number of pips of one color in the cost, such as 2 for white in
+	 * "2WW".  Hybrid and Phyrexian symbols are not counted here.
+	 */
+	public static int pips(long cost, Color color) {
+		return cost == NOT_SET ? 0 : count(cost, PIPS_SHIFT + color.ordinal() * COUNT_BITS);
+	}
+
+	/**
+	 * @return The number of colored pips of all colors in the cost.
+	 */
+	public static int coloredPips(long cost) {
+		int n = 0;
+		for( Color c : Color.values() ) n += pips(cost, c);
+		return n;
+	}
+
+	/**
+	 * @return The number of colorless {C} symbols in the cost.
+	 */
+	public static int colorless(long cost) {
+		return cost == NOT_SET ? 0 : count(cost, COLORLESS_SHIFT);
+	}
+
+	/**
+	 * @return The number of X, Y and Z symbols in the cost.
+	 */
+	public static int x(long cost) {
+		return cost == NOT_SET ? 0 : count(cost, X_SHIFT);
+	}
+
+	/**
+	 * @return The number of hybrid symbols, such as {W/U} or {2/W}, in the cost.
+	 */
+	public static int hybrid(long cost) {
+		return cost == NOT_SET ? 0 : count(cost, HYBRID_SHIFT);
+	}
+
+	/**
+	 * @return The number of Phyrexian symbols, such as {W/P}, in the cost.
+	 */
+	public static int phyrexian(long cost) {
+		return cost == NOT_SET ? 0 : count(cost, PHYREXIAN_SHIFT);
+	}
+
+	/**
+	 * @return The {@link Color} mask of every color the cost mentions.
+	 */
+	public static int colorMask(long cost) {
+		return cost == NOT_SET ? 0 : (int) (cost >>> COLORS_SHIFT) & Color.ALL;
+	}
+
+	/**
+	 * @return true if the cost had a symbol that wasn't understood, in which case the
+	 * counts only cover the rest of it.
+	 */
+	public static boolean hasUnknownSymbols(long cost) {
+		return cost != NOT_SET && (cost & (1L << UNKNOWN_SHIFT)) != 0;
+	}
+}
@@ -0,0 +1,549 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read-only card database file that is used in place rather than loaded.  The
+ * file is mapped into memory with {@link FileChannel#map}, and the cards handed out
+ * read their fields straight from the mapping when their getters are called, so
+ * opening the file costs nothing however many cards it holds, and every JVM on a
+ * host that opens the same file shares one copy of it in the operating system's
+ * page cache instead of each holding its own on the heap.
+ * <pre>
+ * store.exportMapped(new File("mtgdb.cards"));   // Once, from a SnapshotStore.
+ * MappedCardFile cards = MappedCardFile.open(new File("mtgdb.cards"));  // In each JVM.
+ * Card c = cards.getCard(12345);
+ * </pre>
+ * The file holds a fixed-size record per card, so the card in any row is found by
+ * arithmetic, followed by the cards' ids sorted for {@link #getCard(int)}, and a heap
+ * with every distinct string and list written once.  Strings are decoded from the
+ * mapping each time they are read.
+ * <p>
+ * The cards handed out are read-only views; their setters throw
+ * {@link UnsupportedOperationException}.  To change the data write a new file, which
+ * replaces the old one atomically; files already open keep reading the old data.
+ * The mapping is released once the MappedCardFile and its cards are garbage
+ * collected.  A MappedCardFile is safe to share between threads.
+ */
+public class MappedCardFile {
+
+	private static final int MAGIC = 0x4D54474D; // "MTGM"
+	private static final int VERSION = 3;
+	private static final int HEADER_SIZE = 4 * 4;
+
+	/* The ints of a card record, in order. */
+	private static final int ID = 0;
+	private static final int RELATED_CARD_ID = 1;
+	private static final int SET_NUMBER = 2;
+	private static final int POWER = 3;
+	private static final int TOUGHNESS = 4;
+	private static final int LOYALTY = 5;
+	private static final int CONVERTED_MANA_COST = 6;
+	private static final int RELEASED_AT = 7;
+	/* Bit 0 is set for tokens, bits 1 to 5 are the color mask. */
+	private static final int FLAGS = 8;
+	private static final int NAME = 9;
+	private static final int DESCRIPTION = 10;
+	private static final int FLAVOR = 11;
+	private static final int MANA_COST = 12;
+	private static final int CARD_SET_NAME = 13;
+	private static final int TYPE = 14;
+	private static final int SUB_TYPE = 15;
+	private static final int RARITY = 16;
+	private static final int ARTIST = 17;
+	private static final int CARD_SET_ID = 18;
+	private static final int SEARCH_NAME = 19;
+	private static final int COLORS = 20;
+	private static final int RULINGS = 21;
+	private static final int FORMATS = 22;
+	/* The parsed mana cost, high int first. */
+	private static final int PARSED_MANA_COST = 23;
+	private static final int RECORD_SIZE = 25 * 4;
+
+	/* A reference into the heap for a null string or list. */
+	private static final int NULL = -1;
+
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int records;
+	private final int idIndex;
+
+	private MappedCardFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if( buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ) throw new IOException("Not a card file.");
+		if( buffer.getInt(4) != VERSION ) throw new IOException("Unsupported card file version "+buffer.getInt(4)+".");
+		this.size = buffer.getInt(8);
+		this.records = HEADER_SIZE;
+		this.idIndex = records + size * RECORD_SIZE;
+		if( size < 0 || (long) idIndex + size * 8L > buffer.capacity() ) throw new IOException("Corrupt card file: "+size+" cards.");
+	}
+
+	/**
+	 * Map a card file into memory.
+	 * 
+	 * @param file A file written by {@link #write(Collection, File)}.
+	 * @return The open file.
+	 * @throws IOException If the file can't be read or isn't a card file.
+	 */
+	public static MappedCardFile open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if( channel.size() > Integer.MAX_VALUE ) throw new IOException("Card file too large to map.");
+			/* The mapping stays valid after the channel is closed. */
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedCardFile(buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Write cards to a card file.  The file is replaced atomically, so a crash while
+	 * writing leaves the previous file intact.
+	 * 
+	 * @param cards The cards, in the order they are to have in the file.
+	 * @param file Where to write them.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(Collection<Card> cards, File file) throws IOException {
+		int count = cards.size();
+		int heapStart = HEADER_SIZE + count * RECORD_SIZE + count * 8;
+		Heap heap = new Heap(heapStart);
+		long[] ids = new long[count];
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+		boolean written = false;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(count);
+				out.writeInt(heapStart);
+
+				int row = 0;
+				for( Card c : cards ) {
+					if( row == count ) throw new IOException("The collection of cards changed while being written.");
+					out.writeInt(c.getId());
+					out.writeInt(c.getRelatedCardId());
+					out.writeInt(c.getSetNumber());
+					out.writeInt(c.getPower());
+					out.writeInt(c.getToughness());
+					out.writeInt(c.getLoyalty());
+					out.writeInt(c.getConvertedManaCost());
+					out.writeInt(c.getReleasedAtEpochDay());
+					out.writeInt((c.isToken() ? 1 : 0) | (c.getColorMask() << 1));
+					out.writeInt(heap.string(c.getName()));
+					out.writeInt(heap.string(c.getDescription()));
+					out.writeInt(heap.string(c.getFlavor()));
+					out.writeInt(heap.string(c.getManaCost()));
+					out.writeInt(heap.string(c.getCardSetName()));
+					out.writeInt(heap.string(c.getType()));
+					out.writeInt(heap.string(c.getSubType()));
+					out.writeInt(heap.string(c.getRarity()));
+					out.writeInt(heap.string(c.getArtist()));
+					out.writeInt(heap.string(c.getCardSetId()));
+					out.writeInt(heap.string(c.getSearchName()));
+					out.writeInt(heap.colors(c.getColors()));
+					out.writeInt(heap.rulings(c.getRulings()));
+					out.writeInt(heap.formats(c.getFormats()));
+					out.writeLong(c.getParsedManaCost());
+					/* Id above row, so sorting orders by id. */
+					ids[row] = ((long) c.getId() << 32) | row;
+					row++;
+				}
+				if( row != count ) throw new IOException("The collection of cards changed while being written.");
+
+				Arrays.sort(ids);
+				for( long idRow : ids ) {
+					out.writeInt((int) (idRow >> 32));
+					out.writeInt((int) idRow);
+				}
+				heap.bytes.writeTo(out);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			written = true;
+		} finally {
+			if( !written ) tmp.delete();
+		}
+	}
+
+	/*
+	 * Builds the heap in memory, writing each distinct string and list once and
+	 * handing out its offset in the file.  A string is its length in bytes followed
+	 * by its UTF-8 bytes; a list is its length followed by its elements' ints.
+	 */
+	private static final class Heap {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+		final DataOutputStream out = new DataOutputStream(bytes);
+		final int start;
+		final HashMap<Object, Integer> offsets = new HashMap<Object, Integer>();
+
+		Heap(int start) {
+			this.start = start;
+		}
+
+		int string(String s) throws IOException {
+			if( s == null ) return NULL;
+			Integer offset = offsets.get(s);
+			if( offset == null ) {
+				offset = offset();
+				byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(utf8.length);
+				out.write(utf8);
+				offsets.put(s, offset);
+			}
+			return offset;
+		}
+
+		int colors(List<String> colors) throws IOException {
+			if( colors == null ) return NULL;
+			int[] refs = new int[colors.size()];
+			for( int i = 0; i < refs.length; i++ ) refs[i] = string(colors.get(i));
+			return list(refs);
+		}
+
+		int rulings(List<Ruling> rulings) throws IOException {
+			if( rulings == null ) return NULL;
+			int[] refs = new int[rulings.size() * 2];
+			for( int i = 0; i < rulings.size(); i++ ) {
+				Ruling r = rulings.get(i);
+				refs[i * 2] = r.getReleasedAtEpochDay();
+				refs[i * 2 + 1] = string(r.getRule());
+			}
+			return list(refs);
+		}
+
+		int formats(List<Format> formats) throws IOException {
+			if( formats == null ) return NULL;
+			int[] refs = new int[formats.size() * 2];
+			for( int i = 0; i < formats.size(); i++ ) {
+				Format f = formats.get(i);
+				refs[i * 2] = string(f.getName());
+				refs[i * 2 + 1] = string(f.getLegality());
+			}
+			return list(refs);
+		}
+
+		/* Lists are looked up by their ints, which are kept apart from the strings by their type. */
+		private int list(int[] ints) throws IOException {
+			IntsKey key = new IntsKey(ints);
+			Integer offset = offsets.get(key);
+			if( offset == null ) {
+				offset = offset();
+				out.writeInt(ints.length);
+				for( int v : ints ) out.writeInt(v);
+				offsets.put(key, offset);
+			}
+			return offset;
+		}
+
+		private int offset() throws IOException {
+			long offset = (long) start + bytes.size();
+			if( offset > Integer.MAX_VALUE ) throw new IOException("Too many cards for one card file.");
+			return (int) offset;
+		}
+	}
+
+	private static final class IntsKey {
+		final int[] ints;
+
+		IntsKey(int[] ints) {
+			this.ints = ints;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof IntsKey && Arrays.equals(ints, ((IntsKey) o).ints);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(ints);
+		}
+	}
+
+	/**
+	 * @return The number of cards in the file.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param row A card's position in the file.
+	 * @return A read-only view of the card.
+	 */
+	public Card get(int row) {
+		if( row < 0 || row >= size ) throw new IndexOutOfBoundsException("Row "+row+" of "+size);
+		return new MappedCard(records + row * RECORD_SIZE);
+	}
+
+	/**
+	 * @param id A multiverse id.
+	 * @return A read-only view of the card, or null if the file doesn't have it.
+	 */
+	public Card getCard(int id) {
+		int lo = 0;
+		int hi = size - 1;
+		while( lo <= hi ) {
+			int mid = (lo + hi) >>> 1;
+			int midId = buffer.getInt(idIndex + mid * 8);
+			if( midId < id ) lo = mid + 1;
+			else if( midId > id ) hi = mid - 1;
+			else return get(buffer.getInt(idIndex + mid * 8 + 4));
+		}
+		return null;
+	}
+
+	/**
+	 * @return Every card in the file, as views made when each element is read.
+	 */
+	public List<Card> asList() {
+		return new Cards();
+	}
+
+	private String string(int offset) {
+		if( offset == NULL ) return null;
+		int length = buffer.getInt(offset);
+		byte[] utf8 = new byte[length];
+		/* A duplicate has its own position, so concurrent reads don't interfere. */
+		ByteBuffer b = buffer.duplicate();
+		b.position(offset + 4);
+		b.get(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	private final class Cards extends AbstractList<Card> implements RandomAccess {
+		@Override
+		public Card get(int index) {
+			return MappedCardFile.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/* A card read from its record in the mapping. */
+	private final class MappedCard extends CardView {
+
+		private final int record;
+
+		MappedCard(int record) {
+			this.record = record;
+		}
+
+		private int field(int field) {
+			return buffer.getInt(record + field * 4);
+		}
+
+		private String stringField(int field) {
+			return string(field(field));
+		}
+
+		@Override
+		public int getId() {
+			return field(ID);
+		}
+
+		@Override
+		public int getRelatedCardId() {
+			return field(RELATED_CARD_ID);
+		}
+
+		@Override
+		public int getSetNumber() {
+			return field(SET_NUMBER);
+		}
+
+		@Override
+		public String getName() {
+			return stringField(NAME);
+		}
+
+		@Override
+		public String getDescription() {
+			return stringField(DESCRIPTION);
+		}
+
+		@Override
+		public String getFlavor() {
+			return stringField(FLAVOR);
+		}
+
+		@Override
+		public List<String> getColors() {
+			int offset = field(COLORS);
+			if( offset == NULL ) return null;
+			int n = buffer.getInt(offset);
+			ArrayList<String> colors = new ArrayList<String>(n);
+			for( int i = 0; i < n; i++ ) colors.add(string(buffer.getInt(offset + 4 + i * 4)));
+			return Collections.unmodifiableList(colors);
+		}
+
+		@Override
+		public int getColorMask() {
+			return (field(FLAGS) >>> 1) & Color.ALL;
+		}
+
+		@Override
+		public String getManaCost() {
+			return stringField(MANA_COST);
+		}
+
+		@Override
+		public long getParsedManaCost() {
+			return buffer.getLong(record + PARSED_MANA_COST * 4);
+		}
+
+		@Override
+		public int getConvertedManaCost() {
+			return field(CONVERTED_MANA_COST);
+		}
+
+		@Override
+		public String getCardSetName() {
+			return stringField(CARD_SET_NAME);
+		}
+
+		@Override
+		public String getType() {
+			return stringField(TYPE);
+		}
+
+		@Override
+		public String getSubType() {
+			return stringField(SUB_TYPE);
+		}
+
+		@Override
+		public int getPower() {
+			return field(POWER);
+		}
+
+		@Override
+		public int getToughness() {
+			return field(TOUGHNESS);
+		}
+
+		@Override
+		public int getLoyalty() {
+			return field(LOYALTY);
+		}
+
+		@Override
+		public String getRarity() {
+			return stringField(RARITY);
+		}
+
+		@Override
+		public String getArtist() {
+			return stringField(ARTIST);
+		}
+
+		@Override
+		public String getCardSetId() {
+			return stringField(CARD_SET_ID);
+		}
+
+		@Override
+		public List<Ruling> getRulings() {
+			int offset = field(RULINGS);
+			if( offset == NULL ) return null;
+			int n = buffer.getInt(offset) / 2;
+			ArrayList<Ruling> rulings = new ArrayList<Ruling>(n);
+			for( int i = 0; i < n; i++ ) {
+				Ruling r = new Ruling();
+				r.setReleasedAtEpochDay(buffer.getInt(offset + 4 + i * 8));
+				r.setRule(string(buffer.getInt(offset + 8 + i * 8)));
+				rulings.add(r);
+			}
+			return Collections.unmodifiableList(rulings);
+		}
+
+		@Override
+		public List<Format> getFormats() {
+			int offset = field(FORMATS);
+			if( offset == NULL ) return null;
+			int n = buffer.getInt(offset) / 2;
+			ArrayList<Format> formats = new ArrayList<Format>(n);
+			for( int i = 0; i < n; i++ ) {
+				Format f = new Format();
+				f.setName(string(buffer.getInt(offset + 4 + i * 8)));
+				f.setLegality(string(buffer.getInt(offset + 8 + i * 8)));
+				formats.add(f);
+			}
+			return Collections.unmodifiableList(formats);
+		}
+
+		@Override
+		public int getReleasedAtEpochDay() {
+			return field(RELEASED_AT);
+		}
+
+		@Override
+		public String getSearchName() {
+			return stringField(SEARCH_NAME);
+		}
+
+		@Override
+		public boolean isToken() {
+			return (field(FLAGS) & 1) != 0;
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Type-ahead over card names: a prefix trie from names to multiverse ids that
+ * returns the best scoring completions of a prefix without asking the server.
+ * <p>
+ * Each card is indexed under its lower-cased name and under its search name, which
+ * is the name without spaces or punctuation ("gaeasliege" for "Gaea's Liege").  If
+ * the search name wasn't fetched it is worked out from the name, so the trie can be
+ * built from the few fields it needs:
+ * <pre>
+ * HashSet&lt;String&gt; fields = new HashSet&lt;String&gt;(Arrays.asList("id", "name"));
+ * NameTrie names = new NameTrie(Db.getCards(fields));
+ * </pre>
+ * Completions are ordered by a score given when the trie is built, for example
+ * how often each card is played, and alphabetically where scores are equal.  Every
+ * node knows the best score below it, so finding the top k completions only visits
+ * the branches that can still contain one, however many names share the prefix.
+ * <p>
+ * The nodes are kept in parallel arrays rather than as objects.  The trie is
+ * immutable once built and safe to share between threads.
+ */
+public class NameTrie {
+
+	/* Nodes, numbered in depth-first order, which is also alphabetical order. */
+	private final char[] labels;
+	private final int[] firstChild;
+	private final int[] nextSibling;
+	/* The best score of an entry at or below the node. */
+	private final double[] bestScores;
+	/* The entries whose key ends at node n are entryStart[n] to entryStart[n + 1], best first. */
+	private final int[] entryStart;
+	private final int[] ids;
+	private final double[] scores;
+
+	/**
+	 * Builds a trie in which every card scores the same, so completions come out in
+	 * alphabetical order.
+	 *
+	 * @param cards The cards to index.  Only the id, name and search name are used.
+	 */
+	public NameTrie(Collection<Card> cards) {
+		this(cards, c -> 0);
+	}
+
+	/**
+	 * @param cards The cards to index.  Only the id, name and search name are used,
+	 * apart from whatever the score function reads.
+	 * @param score The score of each card; higher scoring cards are completed first.
+	 */
+	public NameTrie(Collection<Card> cards, ToDoubleFunction<Card> score) {
+		ArrayList<Entry> entries = new ArrayList<Entry>(cards.size() * 2);
+		for( Card c : cards ) {
+			String name = c.getName();
+			if( name == null || name.isEmpty() || Card.STR_VALUE_NOT_SET.equals(name) ) continue;
+			double s = score.applyAsDouble(c);
+			String key = name.toLowerCase(Locale.ROOT);
+			entries.add(new Entry(key, c.getId(), s));
+
+			String searchName = c.getSearchName();
+			String compact = searchName == null || Card.STR_VALUE_NOT_SET.equals(searchName) ? compact(key) : compact(searchName.toLowerCase(Locale.ROOT));
+			if( !compact.equals(key) && !compact.isEmpty() ) entries.add(new Entry(compact, c.getId(), s));
+		}
+		Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+		Arrays.sort(sorted, (a, b) -> {
+			int cmp = a.key.compareTo(b.key);
+			if( cmp != 0 ) return cmp;
+			cmp = Double.compare(b.score, a.score);
+			return cmp != 0 ? cmp : Integer.compare(a.id, b.id);
+		});
+
+		/* At most one node per character of every key, plus the root. */
+		int capacity = 1;
+		for( Entry e : sorted ) capacity += e.key.length();
+		char[] labels = new char[capacity];
+		int[] firstChild = new int[capacity];
+		int[] nextSibling = new int[capacity];
+		int[] lastChild = new int[capacity];
+		int[] parent = new int[capacity];
+		int[] entryStart = new int[capacity + 1];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+		Arrays.fill(lastChild, -1);
+		parent[0] = -1;
+
+		this.ids = new int[sorted.length];
+		this.scores = new double[sorted.length];
+
+		/*
+		 * The keys are sorted, so each one shares a path with the previous key and
+		 * only its remaining characters need new nodes.  path[d] is the node for the
+		 * first d characters of the current key.
+		 */
+		int nodes = 1;
+		int[] path = new int[64];
+		String previous = "";
+		for( int i = 0; i < sorted.length; i++ ) {
+			String key = sorted[i].key;
+			if( !key.equals(previous) ) {
+				int common = 0;
+				int max = Math.min(key.length(), previous.length());
+				while( common < max && key.charAt(common) == previous.charAt(common) ) common++;
+				if( key.length() + 1 > path.length ) path = Arrays.copyOf(path, key.length() * 2 + 1);
+				for( int d = common; d < key.length(); d++ ) {
+					int p = path[d];
+					int n = nodes++;
+					labels[n] = key.charAt(d);
+					parent[n] = p;
+					if( lastChild[p] < 0 ) firstChild[p] = n;
+					else nextSibling[lastChild[p]] = n;
+					lastChild[p] = n;
+					path[d + 1] = n;
+					/* Nodes without entries of their own start where the next entry will go. */
+					entryStart[n] = i;
+				}
+				previous = key;
+			}
+			ids[i] = sorted[i].id;
+			scores[i] = sorted[i].score;
+		}
+		/* Every node's entries run up to the start of the next node's. */
+		entryStart[nodes] = sorted.length;
+
+		double[] bestScores = new double[nodes];
+		Arrays.fill(bestScores, Double.NEGATIVE_INFINITY);
+		for( int n = nodes - 1; n >= 0; n-- ) {
+			if( entryStart[n] < entryStart[n + 1] ) bestScores[n] = Math.max(bestScores[n], scores[entryStart[n]]);
+			if( n > 0 ) bestScores[parent[n]] = Math.max(bestScores[parent[n]], bestScores[n]);
+		}
+
+		this.labels = Arrays.copyOf(labels, nodes);
+		this.firstChild = Arrays.copyOf(firstChild, nodes);
+		this.nextSibling = Arrays.copyOf(nextSibling, nodes);
+		this.entryStart = Arrays.copyOf(entryStart, nodes + 1);
+		this.bestScores = bestScores;
+	}
+
+	private static final class Entry {
+		final String key;
+		final int id;
+		final double score;
+
+		Entry(String key, int id, double score) {
+			this.key = key;
+			this.id = id;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * @return The number of nodes in the trie.
+	 */
+	public int nodeCount() {
+		return labels.length;
+	}
+
+	/**
+	 * @param prefix The start of a card name, in any case, with or without its
+	 * spaces and punctuation.
+	 * @param k The most ids to return.
+	 * @return The multiverse ids of the best scoring cards whose name starts with the
+	 * prefix, best first, each at most once.
+	 */
+	public int[] complete(String prefix, int k) {
+		if( k <= 0 ) return new int[0];
+		String key = prefix.toLowerCase(Locale.ROOT);
+		String compact = compact(key);
+
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+		int node = find(key);
+		if( node >= 0 ) queue.add(new Candidate(bestScores[node], node, -1));
+		if( !compact.equals(key) ) {
+			int other = find(compact);
+			if( other >= 0 ) queue.add(new Candidate(bestScores[other], other, -1));
+		}
+
+		int[] result = new int[k];
+		int count = 0;
+		while( count < k && !queue.isEmpty() ) {
+			Candidate c = queue.poll();
+			if( c.entry >= 0 ) {
+				int id = ids[c.entry];
+				boolean seen = false;
+				for( int i = 0; i < count && !seen; i++ ) seen = result[i] == id;
+				if( !seen ) result[count++] = id;
+				continue;
+			}
+			int n = c.node;
+			for( int e = entryStart[n]; e < entryStart[n + 1]; e++ ) queue.add(new Candidate(scores[e], n, e));
+			for( int child = firstChild[n]; child >= 0; child = nextSibling[child] ) {
+				queue.add(new Candidate(bestScores[child], child, -1));
+			}
+		}
+		return count == k ? result : Arrays.copyOf(result, count);
+	}
+
+	/* The node for a key, or -1 if no key starts with it. */
+	private int find(String key) {
+		int n = 0;
+		for( int d = 0; d < key.length() && n >= 0; d++ ) {
+			char ch = key.charAt(d);
+			int child = firstChild[n];
+			while( child >= 0 && labels[child] != ch ) child = nextSibling[child];
+			n = child;
+		}
+		return n;
+	}
+
+	/*
+	 * A node still to be expanded, or one of its entries ready to be returned.
+	 * Higher scores come out first; equal scores come out alphabetically, which is
+	 * node order, with a node's own entries ahead of the longer names below it.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+		final double score;
+		final int node;
+		/* The entry, or -1 for the node itself. */
+		final int entry;
+
+		Candidate(double score, int node, int entry) {
+			this.score = score;
+			this.node = node;
+			this.entry = entry;
+		}
+
+		public int compareTo(Candidate o) {
+			int cmp = Double.compare(o.score, score);
+			if( cmp != 0 ) return cmp;
+			cmp = Integer.compare(node, o.node);
+			if( cmp != 0 ) return cmp;
+			if( (entry < 0) != (o.entry < 0) ) return entry >= 0 ? -1 : 1;
+			return Integer.compare(entry, o.entry);
+		}
+	}
+
+	/* Lower-case letters and digits only, the form search names take. */
+	static String compact(String s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		for( int i = 0; i < s.length(); i++ ) {
+			char ch = s.charAt(i);
+			if( Character.isLetterOrDigit(ch) ) sb.append(Character.toLowerCase(ch));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,138 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/*
+ * Runs a numbered set of requests, such as the chunks of a long id list or the pages
+ * of a set, a few at a time and collects their results in order.
+ * 
+ * The calling thread works through the requests too, alongside at most parallelism - 1
+ * helpers on AsyncDb's executor, so the requests finish even if that executor is busy
+ * or this is itself running on it.  Db returns null for a failed request, so if any
+ * request returns null the remaining ones are skipped and the whole result is null.
+ */
+final class ParallelFetch {
+
+	private ParallelFetch() {
+
+	}
+
+	/**
+	 * @param count The number of requests.
+	 * @param parallelism The most requests to run at once.
+	 * @param request Runs request i and returns its result, or null if it failed.
+	 * @return The results in request order, or null if any request failed.
+	 */
+	static <T> List<T> run(int count, int parallelism, final IntFunction<T> request) {
+		final Object[] results = new Object[count];
+		if( count == 0 ) return new ArrayList<T>();
+		if( count == 1 || parallelism <= 1 ) {
+			for( int i = 0; i < count; i++ ) {
+				T result = request.apply(i);
+				if( result == null ) return null;
+				results[i] = result;
+			}
+			return list(results);
+		}
+
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicBoolean failed = new AtomicBoolean();
+		final AtomicReference<RuntimeException> thrown = new AtomicReference<RuntimeException>();
+		final CountDownLatch finished = new CountDownLatch(count);
+		final int total = count;
+		Runnable worker = () -> {
+			for( int i = next.getAndIncrement(); i < total; i = next.getAndIncrement() ) {
+				try {
+					if( failed.get() ) continue;
+					T result = request.apply(i);
+					if( result == null ) failed.set(true);
+					else results[i] = result;
+				} catch (RuntimeException e) {
+					thrown.compareAndSet(null, e);
+					failed.set(true);
+				} finally {
+					finished.countDown();
+				}
+			}
+		};
+
+		Executor executor = AsyncDb.getExecutor();
+		int helpers = Math.min(parallelism, count) - 1;
+		for( int h = 0; h < helpers; h++ ) {
+			try {
+				executor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				/* The calling thread still gets through them all. */
+				break;
+			}
+		}
+		worker.run();
+
+		try {
+			finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		if( thrown.get() != null ) throw thrown.get();
+		return failed.get() ? null : ParallelFetch.<T>list(results);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> List<T> list(Object[] results) {
+		return (List<T>) new ArrayList<Object>(Arrays.asList(results));
+	}
+
+	/**
+	 * Splits a list into as few consecutive pieces of at most size elements as it can,
+	 * with their sizes as even as possible.  Spreading the remainder means that with a
+	 * size of 3 or more only a one-element list gives a one-element piece, which
+	 * matters because the API answers a single id with an object rather than a list.
+	 * 
+	 * @return The list split into consecutive pieces of at most size elements.
+	 */
+	static <T> List<List<T>> chunks(List<T> list, int size) {
+		int count = (list.size() + size - 1) / size;
+		ArrayList<List<T>> chunks = new ArrayList<List<T>>(count);
+		for( int i = 0, from = 0; i < count; i++ ) {
+			/* The first list.size() % count pieces take one extra element. */
+			int to = from + list.size() / count + (i < list.size() % count ? 1 : 0);
+			chunks.add(list.subList(from, to));
+			from = to;
+		}
+		return chunks;
+	}
+}
@@ -0,0 +1,82 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.BitSet;
+
+/*
+ * The set of card ordinals that have one value of an indexed field.  Like the
+ * containers of a compressed bitmap, rare values (most types, subtypes and sets)
+ * are kept as a sorted int[] and common ones (colors, rarities) as a BitSet,
+ * whichever is smaller.  Query results are built up in a plain BitSet with
+ * orInto().
+ */
+final class Postings {
+
+	private final int[] ordinals;
+	private final BitSet bits;
+	private final int cardinality;
+
+	private Postings(int[] ordinals, BitSet bits, int cardinality) {
+		this.ordinals = ordinals;
+		this.bits = bits;
+		this.cardinality = cardinality;
+	}
+
+	/**
+	 * @param bits The ordinals.  Not copied, so must not be changed afterwards.
+	 * @param universe The number of cards being indexed.
+	 */
+	static Postings of(BitSet bits, int universe) {
+		int cardinality = bits.cardinality();
+		/* An int costs 32 bits, a BitSet one bit per card. */
+		if( (long) cardinality * 32 < universe ) {
+			int[] ordinals = new int[cardinality];
+			int n = 0;
+			for( int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1) ) ordinals[n++] = i;
+			return new Postings(ordinals, null, cardinality);
+		}
+		return new Postings(null, bits, cardinality);
+	}
+
+	int cardinality() {
+		return cardinality;
+	}
+
+	/* acc |= this */
+	void orInto(BitSet acc) {
+		if( bits != null ) {
+			acc.or(bits);
+			return;
+		}
+		for( int ordinal : ordinals ) acc.set(ordinal);
+	}
+
+	BitSet toBitSet() {
+		BitSet b = new BitSet();
+		orInto(b);
+		return b;
+	}
+}
@@ -30,6 +30,28 @@ public class QueryElement {
 		this.valueInt = val;
 	}
 	
+	public Field getField() {
+		return field;
+	}
+	
+	public Operator getOperator() {
+		return operator;
+	}
+	
+	/**
+	 * @return The value if this element was built with a String, otherwise null.
+	 */
+	public String getValueString() {
+		return valueStr;
+	}
+	
+	/**
+	 * @return The value if this element was built with an int, otherwise -1.
+	 */
+	public int getValueInt() {
+		return valueInt;
+	}
+	
 	public String toString() {
 		return field.name() + " " + operator.name() + " " + (valueStr == null ? valueInt : valueStr);
 	}
@@ -0,0 +1,346 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import info.mtgdb.api.QueryElement.Field;
+import info.mtgdb.api.QueryElement.Operator;
+
+/**
+ * Evaluates a {@link ComplexQuery} against cards held in memory, for example the
+ * cards of a {@link SnapshotStore}, instead of sending it to mtgdb.info the way
+ * {@link Db#getCardsByComplexQuery(ComplexQuery)} does.
+ * <p>
+ * The query elements are joined with "and", as they are remotely, and each element
+ * is evaluated as follows:
+ * <ul>
+ * <li>Text fields compare case-insensitively.  <code>eq</code> and <code>not</code> test
+ * equality, <code>m</code> tests whether the field contains the value, and
+ * <code>gt</code>, <code>gte</code>, <code>lt</code> and <code>lte</code> compare
+ * alphabetically.  Quotes around the value, as in <code>'Creature'</code>, are ignored.
+ * A field that is not set reads as the empty string.</li>
+ * <li><code>color</code> matches if any of the card's colors matches the value
+ * (<code>not</code>: if none do).  For the five color names this is a test of the
+ * card's {@link Card#getColorMask() color mask}.</li>
+ * <li>Number fields compare numerically, with <code>m</code> meaning <code>eq</code>.
+ * A card whose value is {@link Card#INT_VALUE_NOT_SET} never matches.</li>
+ * </ul>
+ * Matches are returned in the order of the card collection.  A query start greater
+ * than 0 skips that many matches and a limit greater than 0 caps how many are returned.
+ * <p>
+ * Elements on color, rarity, type, subtype and set id are answered from a
+ * {@link CardIndex} by combining bitmaps, and elements on the number fields from its
+ * range indexes.  Only the remaining elements are checked card by card, and only for
+ * the cards the indexed elements left; for <code>m</code> on name, rules text and
+ * flavor text its {@link TextIndex} first narrows those down to the cards containing
+ * the words of the value.
+ * <p>
+ * An engine only reads the collection it was built with and can be shared between
+ * threads.
+ */
+public class QueryEngine {
+
+	private final CardIndex index;
+
+	/**
+	 * @param cards The cards to query.  They are copied, so later changes to the
+	 * collection are not seen.
+	 */
+	public QueryEngine(Collection<Card> cards) {
+		this(new CardIndex(cards));
+	}
+
+	/**
+	 * @param index An index over the cards to query.
+	 */
+	public QueryEngine(CardIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * @return The index this engine queries.
+	 */
+	public CardIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return The number of cards this engine queries.
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * @param cq The query.
+	 * @return The matching cards.
+	 */
+	public ArrayList<Card> query(ComplexQuery cq) {
+		BitSet candidates = null;
+		ArrayList<CardPredicate> residual = new ArrayList<CardPredicate>();
+		for( QueryElement qe : cq.getQueryElements() ) {
+			BitSet b = index.evaluate(qe);
+			if( b == null ) {
+				residual.add(compile(qe));
+				/* Words of the value narrow the cards down, but each still has to be checked. */
+				b = index.candidates(qe);
+				if( b == null ) continue;
+			}
+			if( candidates == null ) {
+				candidates = b;
+			}
+			else {
+				candidates.and(b);
+			}
+		}
+		CardPredicate[] predicates = residual.toArray(new CardPredicate[residual.size()]);
+
+		int skip = Math.max(cq.getStart(), 0);
+		int limit = cq.getLimit() > 0 ? cq.getLimit() : Integer.MAX_VALUE;
+		int n = index.size();
+		ArrayList<Card> results = new ArrayList<Card>();
+		int i = candidates == null ? 0 : candidates.nextSetBit(0);
+		while( i >= 0 && i < n ) {
+			Card c = index.get(i);
+			if( matchesAll(c, predicates) ) {
+				if( skip > 0 ) {
+					skip--;
+				}
+				else {
+					results.add(c);
+					if( results.size() >= limit ) break;
+				}
+			}
+			i = candidates == null ? i + 1 : candidates.nextSetBit(i + 1);
+		}
+		return results;
+	}
+
+	/**
+	 * @return true if the card satisfies a single query element.
+	 */
+	public static boolean matches(Card c, QueryElement qe) {
+		return compile(qe).test(c);
+	}
+
+	private static boolean matchesAll(Card c, CardPredicate[] predicates) {
+		for( CardPredicate p : predicates ) {
+			if( !p.test(c) ) return false;
+		}
+		return true;
+	}
+
+	/* A query element with its value already parsed and lower-cased. */
+	private interface CardPredicate {
+		boolean test(Card c);
+	}
+
+	private static CardPredicate compile(QueryElement qe) {
+		final Field field = qe.getField();
+		final Operator op = qe.getOperator();
+
+		if( isNumeric(field) ) {
+			final int value;
+			if( qe.getValueString() == null ) {
+				value = qe.getValueInt();
+			}
+			else {
+				try {
+					value = Integer.parseInt(unquote(qe.getValueString()).trim());
+				} catch (NumberFormatException e) {
+					return NEVER;
+				}
+			}
+			return new CardPredicate() {
+				public boolean test(Card c) {
+					int v = intValue(c, field);
+					return v != Card.INT_VALUE_NOT_SET && compare(op, Integer.compare(v, value));
+				}
+			};
+		}
+
+		final String value = (qe.getValueString() == null ? Integer.toString(qe.getValueInt()) : unquote(qe.getValueString())).toLowerCase(Locale.ROOT);
+		if( field == Field.color ) {
+			Color named = Color.fromName(value);
+			if( named != null ) {
+				final int bit = named.getBit();
+				final boolean want = op != Operator.not;
+				if( op != Operator.eq && op != Operator.m && op != Operator.not ) return NEVER;
+				return new CardPredicate() {
+					public boolean test(Card c) {
+						return ((c.getColorMask() & bit) != 0) == want;
+					}
+				};
+			}
+			/* Not one of the five colors, so compare against the names in the list. */
+			return new CardPredicate() {
+				public boolean test(Card c) {
+					List<String> colors = c.getColors();
+					boolean any = false;
+					if( colors != null ) {
+						for( String color : colors ) {
+							if( color == null ) continue;
+							String lower = color.toLowerCase(Locale.ROOT);
+							if( op == Operator.m ? lower.contains(value) : lower.equals(value) ) {
+								any = true;
+								break;
+							}
+						}
+					}
+					switch( op ) {
+					case eq:
+					case m:
+						return any;
+					case not:
+						return !any;
+					default:
+						return false;
+					}
+				}
+			};
+		}
+
+		return new CardPredicate() {
+			public boolean test(Card c) {
+				String s = stringValue(c, field).toLowerCase(Locale.ROOT);
+				switch( op ) {
+				case m:
+					return s.contains(value);
+				case eq:
+					return s.equals(value);
+				case not:
+					return !s.equals(value);
+				default:
+					return compare(op, s.compareTo(value));
+				}
+			}
+		};
+	}
+
+	private static final CardPredicate NEVER = new CardPredicate() {
+		public boolean test(Card c) {
+			return false;
+		}
+	};
+
+	static boolean isNumeric(Field field) {
+		switch( field ) {
+		case convertedmanacost:
+		case power:
+		case toughness:
+		case loyalty:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	static int intValue(Card c, Field field) {
+		switch( field ) {
+		case convertedmanacost:
+			return c.getConvertedManaCost();
+		case power:
+			return c.getPower();
+		case toughness:
+			return c.getToughness();
+		case loyalty:
+			return c.getLoyalty();
+		default:
+			throw new IllegalArgumentException(field+" is not a number field.");
+		}
+	}
+
+	/* The field's text, or "" if it isn't set. */
+	static String stringValue(Card c, Field field) {
+		String s;
+		switch( field ) {
+		case name:
+			s = c.getName();
+			break;
+		case description:
+			s = c.getDescription();
+			break;
+		case flavor:
+			s = c.getFlavor();
+			break;
+		case manacost:
+			s = c.getManaCost();
+			break;
+		case type:
+			s = c.getType();
+			break;
+		case subtype:
+			s = c.getSubType();
+			break;
+		case rarity:
+			s = c.getRarity();
+			break;
+		case artist:
+			s = c.getArtist();
+			break;
+		case setId:
+			s = c.getCardSetId();
+			break;
+		default:
+			throw new IllegalArgumentException(field+" is not a text field.");
+		}
+		return s == null || Card.STR_VALUE_NOT_SET.equals(s) ? "" : s;
+	}
+
+	/* Applies a comparison operator to the result of a compare()/compareTo(). */
+	static boolean compare(Operator op, int cmp) {
+		switch( op ) {
+		case m:
+		case eq:
+			return cmp == 0;
+		case not:
+			return cmp != 0;
+		case gt:
+			return cmp > 0;
+		case gte:
+			return cmp >= 0;
+		case lt:
+			return cmp < 0;
+		case lte:
+			return cmp <= 0;
+		default:
+			return false;
+		}
+	}
+
+	static String unquote(String s) {
+		if( s.length() >= 2 ) {
+			char first = s.charAt(0);
+			char last = s.charAt(s.length() - 1);
+			if( (first == '\'' || first == '"') && first == last ) return s.substring(1, s.length() - 1);
+		}
+		return s;
+	}
+}
@@ -0,0 +1,92 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/*
+ * A sorted index over one int field of a list of cards, for range predicates such
+ * as "converted mana cost at most 3".  The ordinals of the cards are sorted by the
+ * field's value, so a range is two binary searches followed by a run of ordinals.
+ * Cards whose value is Card.INT_VALUE_NOT_SET are left out, so they never match.
+ */
+final class RangeIndex {
+
+	/* Field values in ascending order, and the ordinal of the card each came from. */
+	private final int[] values;
+	private final int[] ordinals;
+
+	RangeIndex(List<Card> cards, QueryElement.Field field) {
+		int n = 0;
+		long[] packed = new long[cards.size()];
+		for( int i = 0; i < cards.size(); i++ ) {
+			int v = QueryEngine.intValue(cards.get(i), field);
+			if( v == Card.INT_VALUE_NOT_SET ) continue;
+			/* Value in the high half, ordinal in the low half, so one sort orders by both. */
+			packed[n++] = ((long) v << 32) | i;
+		}
+		Arrays.sort(packed, 0, n);
+
+		values = new int[n];
+		ordinals = new int[n];
+		for( int i = 0; i < n; i++ ) {
+			values[i] = (int) (packed[i] >> 32);
+			ordinals[i] = (int) packed[i];
+		}
+	}
+
+	/**
+	 * @return The ordinals of the cards whose value is in [min, max].
+	 */
+	BitSet range(int min, int max) {
+		BitSet result = new BitSet();
+		if( min > max ) return result;
+		int from = lowerBound(min);
+		int to = max == Integer.MAX_VALUE ? values.length : lowerBound(max + 1);
+		for( int i = from; i < to; i++ ) result.set(ordinals[i]);
+		return result;
+	}
+
+	/**
+	 * @return The ordinals of the cards that have a value at all.
+	 */
+	BitSet present() {
+		return range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/* The first position whose value is >= v. */
+	private int lowerBound(int v) {
+		int lo = 0;
+		int hi = values.length;
+		while( lo < hi ) {
+			int mid = (lo + hi) >>> 1;
+			if( values[mid] < v ) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+}
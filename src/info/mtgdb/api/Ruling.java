@@ -24,20 +24,26 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
 THE SOFTWARE.
 */
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.Date;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 public class Ruling {
 
-	private final SimpleDateFormat dateFormatter = new SimpleDateFormat(Dates.dateFormatInput);
-	
 	private String rule;
-	private Date releasedAt;
+	/* Days since 1970-01-01, see Dates. */
+	private int releasedAt = Dates.EPOCH_DAY_NOT_SET;
 	
+	/**
+	 * Creates an empty Ruling, to be filled in with the setters.
+	 */
+	public Ruling() {
+
+	}
+
 	public Ruling(JSONObject json) {
 		for( String s : JSONObject.getNames(json) ) {
 			if( s.matches("rule") ) {
@@ -45,18 +51,37 @@ public class Ruling {
 			}
 			else if( s.matches("releasedAt") ) {
 				try {
-					releasedAt = dateFormatter.parse(json.getString(s));
+					releasedAt = Dates.parseEpochDay(json.getString(s));
 				} catch (JSONException e) {
 					e.printStackTrace();
-				} catch (ParseException e) {
-					e.printStackTrace();
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Read a Ruling straight from a tokener positioned at its JSON object.
+	 * 
+	 * @param x
+	 */
+	public Ruling(JSONTokener x) {
+		TokenReader.beginObject(x);
+		for( String s = TokenReader.nextKey(x); s != null; s = TokenReader.nextKey(x) ) {
+			if( s.equals("rule") ) {
+				rule = TokenReader.readString(x);
+			}
+			else if( s.equals("releasedAt") ) {
+				releasedAt = Dates.parseEpochDay(TokenReader.readString(x));
+			}
+			else {
+				TokenReader.skipValue(x);
+			}
+		}
+	}
+	
 	public String toString() {
-		return releasedAt.toString()+": "+rule;
+		String date = Dates.format(releasedAt);
+		return (date == null ? Card.DATE_VALUE_NOT_SET : date)+": "+rule;
 	}
 	
 	public String getRule() {
@@ -65,11 +90,29 @@ public class Ruling {
 	public void setRule(String rule) {
 		this.rule = rule;
 	}
+	/**
+	 * @return A new {@link Date} for the ruling's day, or null if it is not set.
+	 */
 	public Date getReleasedAt() {
-		return releasedAt;
+		return Dates.toDate(releasedAt);
 	}
 	public void setReleasedAt(Date releasedAt) {
-		this.releasedAt = releasedAt;
+		this.releasedAt = Dates.fromDate(releasedAt);
+	}
+	/**
+	 * @return The ruling's date as a {@link LocalDate}, or null if it is not set.
+	 */
+	public LocalDate getReleasedAtDate() {
+		return Dates.toLocalDate(releasedAt);
+	}
+	/**
+	 * @return The ruling's date in days since 1970-01-01, or {@link Dates#EPOCH_DAY_NOT_SET}.
+	 */
+	public int getReleasedAtEpochDay() {
+		return releasedAt;
+	}
+	public void setReleasedAtEpochDay(int epochDay) {
+		this.releasedAt = epochDay;
 	}
 
 
@@ -0,0 +1,72 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * Collapses concurrent calls for the same key into one.  The first caller for a key
+ * runs the call; callers that arrive while it is running wait for it and get the
+ * same result (or exception) instead of running it again.  Once the call finishes
+ * the key is forgotten, so later callers run it afresh; this is not a cache.
+ * 
+ * Db uses one per kind of response, keyed by request URL, so that many threads
+ * asking for the same card at the same moment cause one request and one parse.
+ */
+final class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+	V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> mine = new CompletableFuture<V>();
+		CompletableFuture<V> running = calls.putIfAbsent(key, mine);
+		if( running != null ) return await(running);
+
+		try {
+			V value = call.get();
+			mine.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, mine);
+		}
+	}
+
+	private static <V> V await(CompletableFuture<V> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+			if( cause instanceof Error ) throw (Error) cause;
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,546 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A local copy of the whole card database, kept in a file so that it only has to be
+ * downloaded once.  A typical service loads the snapshot at startup and refreshes it
+ * in the background:
+ * 
+ * <pre>
+ * SnapshotStore store = new SnapshotStore(new File("mtgdb.snapshot"));
+ * if( !store.load() ) store.refresh();
+ * ...
+ * store.refresh(); // Later, to pick up new or changed sets.
+ * </pre>
+ * 
+ * {@link #refresh()} compares the card ids of every set from {@link Db#getAllSets()}
+ * with the stored copy and only downloads the cards of sets that are new or changed.
+ * <p>
+ * The file is a compact binary format: every distinct string (artist, type, rules
+ * text, ...) is written once in a table and referred to by number, and numbers are
+ * written as variable-length ints.  Loading it back shares those strings between
+ * cards, so the loaded snapshot is also smaller on the heap than a fresh download.
+ * <p>
+ * A store is safe to share between threads.  Reads are lock-free: {@link #load()}
+ * and {@link #refresh()} build a complete new copy of the data and then swap it in,
+ * so readers always see a consistent snapshot.  {@link #load()}, {@link #save()}
+ * and {@link #refresh()} lock the store, so one of them running never undoes
+ * another, and a refresh doesn't start from data that a load is about to replace.
+ * The Card and CardSet objects handed out are shared and should not be modified.
+ */
+public class SnapshotStore {
+
+	private static final int MAGIC = 0x4D544753; // "MTGS"
+	private static final int VERSION = 1;
+
+	private final File file;
+	private volatile Snapshot snapshot = new Snapshot(new LinkedHashMap<String, CardSet>(), new LinkedHashMap<String, List<Card>>());
+
+	/**
+	 * @param file Where the snapshot is stored.  Nothing is read until {@link #load()}.
+	 */
+	public SnapshotStore(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return The file the snapshot is stored in.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Replace the in-memory data with what is stored on disk.
+	 * 
+	 * @return false if there is no snapshot file yet.
+	 * @throws IOException If the file can't be read or isn't a snapshot.
+	 */
+	public synchronized boolean load() throws IOException {
+		if( !file.exists() ) return false;
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			snapshot = read(in);
+		} finally {
+			in.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Write the in-memory data to disk.  The file is replaced atomically, so a crash
+	 * while saving leaves the previous snapshot intact.
+	 * 
+	 * @throws IOException If the file can't be written.
+	 */
+	public synchronized void save() throws IOException {
+		Snapshot s = snapshot;
+		File parent = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+		boolean written = false;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+			try {
+				write(s, out);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			written = true;
+		} finally {
+			if( !written ) tmp.delete();
+		}
+	}
+
+	/**
+	 * Write the stored cards to a file that can be shared between processes with
+	 * {@link MappedCardFile#open(File)}, without any of them loading it.
+	 * 
+	 * @param mappedFile Where to write the cards.  It is replaced atomically.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void exportMapped(File mappedFile) throws IOException {
+		MappedCardFile.write(snapshot.allCards, mappedFile);
+	}
+
+	/**
+	 * Bring the snapshot up to date with mtgdb.info and save it.  Only sets whose card
+	 * ids differ from the stored copy (or that are not stored at all) are downloaded,
+	 * and sets that no longer exist are dropped.
+	 * 
+	 * @return The number of sets whose cards were downloaded.
+	 * @throws IOException If the set list or a set's cards could not be downloaded, or
+	 * the snapshot could not be saved.  The in-memory data is left unchanged.
+	 */
+	public synchronized int refresh() throws IOException {
+		ArrayList<CardSet> remoteSets = Db.getAllSets();
+		if( remoteSets == null ) throw new IOException("Could not download the list of sets.");
+
+		Snapshot current = snapshot;
+		LinkedHashMap<String, CardSet> sets = new LinkedHashMap<String, CardSet>();
+		LinkedHashMap<String, List<Card>> cards = new LinkedHashMap<String, List<Card>>();
+		int downloaded = 0;
+
+		for( CardSet remote : remoteSets ) {
+			String id = remote.getId();
+			CardSet local = current.sets.get(id);
+			List<Card> setCards = current.cardsBySet.get(id);
+			if( local == null || setCards == null || !sameCards(local, remote) ) {
+				ArrayList<Card> fetched = Db.getSetCards(id);
+				if( fetched == null ) throw new IOException("Could not download the cards in set "+id+".");
+				setCards = Collections.unmodifiableList(fetched);
+				downloaded++;
+			}
+			sets.put(id, remote);
+			cards.put(id, setCards);
+		}
+
+		snapshot = new Snapshot(sets, cards);
+		save();
+		return downloaded;
+	}
+
+	/**
+	 * @return Every stored card, in set order.
+	 */
+	public List<Card> getCards() {
+		return snapshot.allCards;
+	}
+
+	/**
+	 * @return Every stored set.
+	 */
+	public List<CardSet> getSets() {
+		return snapshot.allSets;
+	}
+
+	/**
+	 * @param setId The set id.
+	 * @return The stored set, or null.
+	 */
+	public CardSet getSet(String setId) {
+		return snapshot.sets.get(setId);
+	}
+
+	/**
+	 * @param setId The set id.
+	 * @return The stored cards in the set, or null if the set isn't stored.
+	 */
+	public List<Card> getSetCards(String setId) {
+		return snapshot.cardsBySet.get(setId);
+	}
+
+	/**
+	 * @param id A multiverse id.
+	 * @return The stored card, or null.
+	 */
+	public Card getCard(int id) {
+		return snapshot.cardsById.get(id);
+	}
+
+	/* A set is unchanged if it still lists the same cards.  Sets listed without their
+	 * card ids fall back to comparing the card count.
+	 */
+	private static boolean sameCards(CardSet local, CardSet remote) {
+		if( remote.getCardIds() == null || local.getCardIds() == null ) {
+			return remote.getCardIds() == local.getCardIds() && remote.getTotal() == local.getTotal();
+		}
+		return remote.getCardIds().equals(local.getCardIds());
+	}
+
+	/* Everything the store knows at one point in time.  Never modified once built. */
+	private static class Snapshot {
+		final Map<String, CardSet> sets;
+		final Map<String, List<Card>> cardsBySet;
+		final Map<Integer, Card> cardsById;
+		final List<CardSet> allSets;
+		final List<Card> allCards;
+
+		Snapshot(LinkedHashMap<String, CardSet> sets, LinkedHashMap<String, List<Card>> cardsBySet) {
+			this.sets = Collections.unmodifiableMap(sets);
+			this.cardsBySet = Collections.unmodifiableMap(cardsBySet);
+			this.allSets = Collections.unmodifiableList(new ArrayList<CardSet>(sets.values()));
+
+			ArrayList<Card> all = new ArrayList<Card>();
+			for( List<Card> l : cardsBySet.values() ) all.addAll(l);
+			HashMap<Integer, Card> byId = new HashMap<Integer, Card>(all.size() * 2);
+			for( Card c : all ) byId.put(c.getId(), c);
+			this.allCards = Collections.unmodifiableList(all);
+			this.cardsById = Collections.unmodifiableMap(byId);
+		}
+	}
+
+	/*
+	 * File layout, all numbers as varints unless noted:
+	 * 
+	 *   magic (int), version (int)
+	 *   string count, then each string as byte length + UTF-8 bytes
+	 *   set count, then for each set: the set, its card count, its cards
+	 * 
+	 * Strings are written as their index in the table plus one, with 0 for null.
+	 * Lists are written as their size plus one, with 0 for null.
+	 */
+
+	private static void write(Snapshot s, DataOutputStream out) throws IOException {
+		StringTable strings = new StringTable();
+		for( CardSet set : s.allSets ) strings.add(set);
+		for( Card c : s.allCards ) strings.add(c);
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeVarInt(out, strings.list.size());
+		for( String str : strings.list ) {
+			byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+
+		writeVarInt(out, s.sets.size());
+		for( Map.Entry<String, CardSet> e : s.sets.entrySet() ) {
+			writeSet(out, strings, e.getValue());
+			List<Card> cards = s.cardsBySet.get(e.getKey());
+			writeVarInt(out, cards.size());
+			for( Card c : cards ) writeCard(out, strings, c);
+		}
+	}
+
+	private static Snapshot read(DataInputStream in) throws IOException {
+		if( in.readInt() != MAGIC ) throw new IOException("Not a card snapshot.");
+		int version = in.readInt();
+		if( version != VERSION ) throw new IOException("Unsupported snapshot version "+version+".");
+
+		String[] strings = new String[readVarInt(in)];
+		byte[] buf = new byte[256];
+		for( int i = 0; i < strings.length; i++ ) {
+			int length = readVarInt(in);
+			if( buf.length < length ) buf = new byte[Math.max(length, buf.length * 2)];
+			in.readFully(buf, 0, length);
+			strings[i] = new String(buf, 0, length, StandardCharsets.UTF_8);
+		}
+
+		int setCount = readVarInt(in);
+		LinkedHashMap<String, CardSet> sets = new LinkedHashMap<String, CardSet>(setCount * 2);
+		LinkedHashMap<String, List<Card>> cardsBySet = new LinkedHashMap<String, List<Card>>(setCount * 2);
+		for( int i = 0; i < setCount; i++ ) {
+			CardSet set = readSet(in, strings);
+			int cardCount = readVarInt(in);
+			ArrayList<Card> cards = new ArrayList<Card>(cardCount);
+			for( int j = 0; j < cardCount; j++ ) cards.add(readCard(in, strings));
+			sets.put(set.getId(), set);
+			cardsBySet.put(set.getId(), Collections.unmodifiableList(cards));
+		}
+		return new Snapshot(sets, cardsBySet);
+	}
+
+	private static void writeSet(DataOutputStream out, StringTable strings, CardSet set) throws IOException {
+		writeVarInt(out, strings.ref(set.getId()));
+		writeVarInt(out, strings.ref(set.getName()));
+		writeVarInt(out, strings.ref(set.getBlock()));
+		writeVarInt(out, strings.ref(set.getDescription()));
+		writeVarInt(out, strings.ref(set.getType()));
+		writeSignedVarInt(out, set.getCommon());
+		writeSignedVarInt(out, set.getUncommon());
+		writeSignedVarInt(out, set.getRare());
+		writeSignedVarInt(out, set.getMythic());
+		writeSignedVarInt(out, set.getBasicLand());
+		writeSignedVarInt(out, set.getTotal());
+		writeSignedVarInt(out, set.getReleasedAtEpochDay());
+		List<Integer> ids = set.getCardIds();
+		writeVarInt(out, ids == null ? 0 : ids.size() + 1);
+		if( ids != null ) for( Integer id : ids ) writeSignedVarInt(out, id);
+	}
+
+	private static CardSet readSet(DataInputStream in, String[] strings) throws IOException {
+		CardSet set = new CardSet();
+		set.setId(string(in, strings));
+		set.setName(string(in, strings));
+		set.setBlock(string(in, strings));
+		set.setDescription(string(in, strings));
+		set.setType(string(in, strings));
+		set.setCommon(readSignedVarInt(in));
+		set.setUncommon(readSignedVarInt(in));
+		set.setRare(readSignedVarInt(in));
+		set.setMythic(readSignedVarInt(in));
+		set.setBasicLand(readSignedVarInt(in));
+		set.setTotal(readSignedVarInt(in));
+		set.setReleasedAtEpochDay(readSignedVarInt(in));
+		int size = readVarInt(in);
+		if( size > 0 ) {
+			ArrayList<Integer> ids = new ArrayList<Integer>(size - 1);
+			for( int i = 1; i < size; i++ ) ids.add(readSignedVarInt(in));
+			set.setCardIds(ids);
+		}
+		return set;
+	}
+
+	private static void writeCard(DataOutputStream out, StringTable strings, Card c) throws IOException {
+		writeSignedVarInt(out, c.getId());
+		writeSignedVarInt(out, c.getRelatedCardId());
+		writeSignedVarInt(out, c.getSetNumber());
+		writeSignedVarInt(out, c.getPower());
+		writeSignedVarInt(out, c.getToughness());
+		writeSignedVarInt(out, c.getLoyalty());
+		writeSignedVarInt(out, c.getConvertedManaCost());
+		writeSignedVarInt(out, c.getReleasedAtEpochDay());
+		out.writeBoolean(c.isToken());
+
+		writeVarInt(out, strings.ref(c.getName()));
+		writeVarInt(out, strings.ref(c.getSearchName()));
+		writeVarInt(out, strings.ref(c.getDescription()));
+		writeVarInt(out, strings.ref(c.getFlavor()));
+		writeVarInt(out, strings.ref(c.getManaCost()));
+		writeVarInt(out, strings.ref(c.getCardSetName()));
+		writeVarInt(out, strings.ref(c.getType()));
+		writeVarInt(out, strings.ref(c.getSubType()));
+		writeVarInt(out, strings.ref(c.getRarity()));
+		writeVarInt(out, strings.ref(c.getArtist()));
+		writeVarInt(out, strings.ref(c.getCardSetId()));
+
+		List<String> colors = c.getColors();
+		writeVarInt(out, colors == null ? 0 : colors.size() + 1);
+		if( colors != null ) for( String color : colors ) writeVarInt(out, strings.ref(color));
+
+		List<Ruling> rulings = c.getRulings();
+		writeVarInt(out, rulings == null ? 0 : rulings.size() + 1);
+		if( rulings != null ) {
+			for( Ruling r : rulings ) {
+				writeSignedVarInt(out, r.getReleasedAtEpochDay());
+				writeVarInt(out, strings.ref(r.getRule()));
+			}
+		}
+
+		List<Format> formats = c.getFormats();
+		writeVarInt(out, formats == null ? 0 : formats.size() + 1);
+		if( formats != null ) {
+			for( Format f : formats ) {
+				writeVarInt(out, strings.ref(f.getName()));
+				writeVarInt(out, strings.ref(f.getLegality()));
+			}
+		}
+	}
+
+	private static Card readCard(DataInputStream in, String[] strings) throws IOException {
+		Card c = new Card();
+		c.setId(readSignedVarInt(in));
+		c.setRelatedCardId(readSignedVarInt(in));
+		c.setSetNumber(readSignedVarInt(in));
+		c.setPower(readSignedVarInt(in));
+		c.setToughness(readSignedVarInt(in));
+		c.setLoyalty(readSignedVarInt(in));
+		c.setConvertedManaCost(readSignedVarInt(in));
+		c.setReleasedAtEpochDay(readSignedVarInt(in));
+		c.setToken(in.readBoolean());
+
+		c.setName(string(in, strings));
+		c.setSearchName(string(in, strings));
+		c.setDescription(string(in, strings));
+		c.setFlavor(string(in, strings));
+		c.setManaCost(string(in, strings));
+		c.setCardSetName(string(in, strings));
+		c.setType(string(in, strings));
+		c.setSubType(string(in, strings));
+		c.setRarity(string(in, strings));
+		c.setArtist(string(in, strings));
+		c.setCardSetId(string(in, strings));
+
+		int size = readVarInt(in);
+		if( size > 0 ) {
+			ArrayList<String> colors = new ArrayList<String>(size - 1);
+			for( int i = 1; i < size; i++ ) colors.add(string(in, strings));
+			c.setColors(colors);
+		}
+
+		size = readVarInt(in);
+		if( size > 0 ) {
+			ArrayList<Ruling> rulings = new ArrayList<Ruling>(size - 1);
+			for( int i = 1; i < size; i++ ) {
+				Ruling r = new Ruling();
+				r.setReleasedAtEpochDay(readSignedVarInt(in));
+				r.setRule(string(in, strings));
+				rulings.add(r);
+			}
+			c.setRulings(rulings);
+		}
+
+		size = readVarInt(in);
+		if( size > 0 ) {
+			ArrayList<Format> formats = new ArrayList<Format>(size - 1);
+			for( int i = 1; i < size; i++ ) {
+				Format f = new Format();
+				f.setName(string(in, strings));
+				f.setLegality(string(in, strings));
+				formats.add(f);
+			}
+			c.setFormats(formats);
+		}
+		return c;
+	}
+
+	/* Collects the distinct strings to write, in first-seen order. */
+	private static class StringTable {
+		final HashMap<String, Integer> refs = new HashMap<String, Integer>();
+		final ArrayList<String> list = new ArrayList<String>();
+
+		void add(String s) {
+			if( s != null && !refs.containsKey(s) ) {
+				list.add(s);
+				refs.put(s, list.size());
+			}
+		}
+
+		int ref(String s) {
+			return s == null ? 0 : refs.get(s);
+		}
+
+		void add(CardSet set) {
+			add(set.getId());
+			add(set.getName());
+			add(set.getBlock());
+			add(set.getDescription());
+			add(set.getType());
+		}
+
+		void add(Card c) {
+			add(c.getName());
+			add(c.getSearchName());
+			add(c.getDescription());
+			add(c.getFlavor());
+			add(c.getManaCost());
+			add(c.getCardSetName());
+			add(c.getType());
+			add(c.getSubType());
+			add(c.getRarity());
+			add(c.getArtist());
+			add(c.getCardSetId());
+			if( c.getColors() != null ) for( String color : c.getColors() ) add(color);
+			if( c.getRulings() != null ) for( Ruling r : c.getRulings() ) add(r.getRule());
+			if( c.getFormats() != null ) {
+				for( Format f : c.getFormats() ) {
+					add(f.getName());
+					add(f.getLegality());
+				}
+			}
+		}
+	}
+
+	private static String string(DataInputStream in, String[] strings) throws IOException {
+		int ref = readVarInt(in);
+		if( ref > strings.length ) throw new IOException("Corrupt snapshot: string "+ref+" of "+strings.length+".");
+		return ref == 0 ? null : strings[ref - 1];
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while( (value & ~0x7F) != 0 ) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for( int shift = 0; shift < 35; shift += 7 ) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if( (b & 0x80) == 0 ) return value;
+		}
+		throw new IOException("Corrupt snapshot: varint too long.");
+	}
+
+	/* Zig-zag encoded so the -1 "not set" values stay one byte. */
+	private static void writeSignedVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+
+	private static int readSignedVarInt(DataInputStream in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
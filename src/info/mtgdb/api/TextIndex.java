@@ -0,0 +1,447 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import info.mtgdb.api.QueryElement.Field;
+
+/**
+ * An inverted full-text index over the name, type, description (rules text) and
+ * flavor text of a fixed list of cards, for searching locally instead of calling
+ * {@link Db#searchCards(String)} on every keystroke.
+ * <p>
+ * Text is split into words on anything that is not a letter or digit, lower-cased,
+ * and with apostrophes dropped, so "Gaea's" is indexed as "gaeas".  A search is a
+ * list of words, all of which must match:
+ * <ul>
+ * <li><code>angel flying</code> matches cards with both words, in any field and order.</li>
+ * <li><code>"enters the battlefield"</code> matches the words next to each other in one field.</li>
+ * <li><code>ser*</code> matches any word starting with "ser".  The last word of a search
+ * that does not end in a space is treated as a prefix too, so results can be shown
+ * while the user is typing.</li>
+ * </ul>
+ * Results are ranked with a BM25-style score in which rare words count for more than
+ * common ones and a match in the name counts for more than one in the type, rules
+ * text or flavor text, in that order.
+ * <p>
+ * Cards are identified by their ordinal, as in {@link CardIndex}, which builds one
+ * of these over its cards.  The index is immutable once built and safe to share
+ * between threads.
+ */
+public class TextIndex {
+
+	/* The indexed fields, in the order of their field numbers, and how much a match in each is worth. */
+	private static final Field[] FIELDS = { Field.name, Field.type, Field.description, Field.flavor };
+	private static final float[] WEIGHTS = { 4f, 2f, 1f, 0.5f };
+
+	/* A position packs the field number above the word's position in that field. */
+	private static final int FIELD_SHIFT = 24;
+	private static final int POSITION_MASK = (1 << FIELD_SHIFT) - 1;
+
+	/* BM25 parameters. */
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+
+	private final List<Card> cards;
+	/* All distinct words, sorted, so that a prefix is a range of this array. */
+	private final String[] words;
+	private final Term[] terms;
+	/* The number of words in each field of each card, at [ordinal * FIELDS.length + field]. */
+	private final int[] lengths;
+	private final float[] averageLengths;
+
+	/* The postings of one word: the cards it occurs in and where. */
+	private static final class Term {
+		final int[] ordinals;
+		/* The positions in card ordinals[i] are positions[offsets[i]] to positions[offsets[i + 1]]. */
+		final int[] offsets;
+		final int[] positions;
+		final float idf;
+
+		Term(int[] ordinals, int[] offsets, int[] positions, int n) {
+			this.ordinals = ordinals;
+			this.offsets = offsets;
+			this.positions = positions;
+			int df = ordinals.length;
+			this.idf = (float) Math.log(1 + (n - df + 0.5) / (df + 0.5));
+		}
+	}
+
+	/* Collects (ordinal, position) pairs for one word while indexing. */
+	private static final class TermBuilder {
+		int[] pairs = new int[8];
+		int size;
+		int cardCount;
+		int lastOrdinal = -1;
+
+		void add(int ordinal, int position) {
+			if( size + 2 > pairs.length ) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+			pairs[size++] = ordinal;
+			pairs[size++] = position;
+			if( ordinal != lastOrdinal ) {
+				cardCount++;
+				lastOrdinal = ordinal;
+			}
+		}
+
+		Term build(int n) {
+			int[] ordinals = new int[cardCount];
+			int[] offsets = new int[cardCount + 1];
+			int[] positions = new int[size / 2];
+			int card = -1;
+			for( int i = 0; i < size; i += 2 ) {
+				if( card < 0 || ordinals[card] != pairs[i] ) {
+					ordinals[++card] = pairs[i];
+					offsets[card] = i / 2;
+				}
+				positions[i / 2] = pairs[i + 1];
+			}
+			offsets[cardCount] = positions.length;
+			return new Term(ordinals, offsets, positions, n);
+		}
+	}
+
+	/**
+	 * @param cards The cards to index.  They are copied, so later changes to the
+	 * collection are not seen.
+	 */
+	public TextIndex(Collection<Card> cards) {
+		this.cards = Collections.unmodifiableList(new ArrayList<Card>(cards));
+		int n = this.cards.size();
+		this.lengths = new int[n * FIELDS.length];
+		long[] totals = new long[FIELDS.length];
+
+		HashMap<String, TermBuilder> builders = new HashMap<String, TermBuilder>();
+		for( int i = 0; i < n; i++ ) {
+			Card c = this.cards.get(i);
+			for( int f = 0; f < FIELDS.length; f++ ) {
+				List<String> tokens = tokenize(QueryEngine.stringValue(c, FIELDS[f]));
+				int count = Math.min(tokens.size(), POSITION_MASK);
+				for( int p = 0; p < count; p++ ) {
+					TermBuilder b = builders.get(tokens.get(p));
+					if( b == null ) {
+						b = new TermBuilder();
+						builders.put(tokens.get(p), b);
+					}
+					b.add(i, (f << FIELD_SHIFT) | p);
+				}
+				lengths[i * FIELDS.length + f] = count;
+				totals[f] += count;
+			}
+		}
+
+		this.words = builders.keySet().toArray(new String[builders.size()]);
+		Arrays.sort(this.words);
+		this.terms = new Term[this.words.length];
+		for( int t = 0; t < this.words.length; t++ ) {
+			this.terms[t] = builders.get(this.words[t]).build(n);
+		}
+
+		this.averageLengths = new float[FIELDS.length];
+		for( int f = 0; f < FIELDS.length; f++ ) {
+			averageLengths[f] = n == 0 ? 1f : Math.max(1f, (float) totals[f] / n);
+		}
+	}
+
+	/**
+	 * @return The number of cards indexed.
+	 */
+	public int size() {
+		return cards.size();
+	}
+
+	/**
+	 * @return The number of distinct words indexed.
+	 */
+	public int wordCount() {
+		return words.length;
+	}
+
+	/**
+	 * @param query The search, as described above.
+	 * @return Every matching card, best match first.
+	 */
+	public ArrayList<Card> search(String query) {
+		return search(query, 0);
+	}
+
+	/**
+	 * @param query The search, as described above.
+	 * @param limit The most cards to return, or 0 for all of them.
+	 * @return The best matching cards, best match first.
+	 */
+	public ArrayList<Card> search(String query, int limit) {
+		float[] scores = new float[cards.size()];
+		BitSet matched = evaluate(query, scores);
+
+		int count = matched.cardinality();
+		Integer[] ordinals = new Integer[count];
+		int k = 0;
+		for( int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1) ) ordinals[k++] = i;
+		final float[] s = scores;
+		Arrays.sort(ordinals, (a, b) -> {
+			int cmp = Float.compare(s[b], s[a]);
+			return cmp != 0 ? cmp : Integer.compare(a, b);
+		});
+
+		int size = limit > 0 ? Math.min(limit, count) : count;
+		ArrayList<Card> results = new ArrayList<Card>(size);
+		for( int i = 0; i < size; i++ ) results.add(cards.get(ordinals[i]));
+		return results;
+	}
+
+	/**
+	 * @param query The search, as described above.
+	 * @return The ordinals of every matching card, unranked, for combining with
+	 * lookups on a {@link CardIndex} over the same cards.
+	 */
+	public BitSet matching(String query) {
+		return evaluate(query, null);
+	}
+
+	/*
+	 * Parses the search into clauses and intersects what each matches.  If scores
+	 * isn't null each matching card's score is added up in it.
+	 */
+	private BitSet evaluate(String query, float[] scores) {
+		BitSet result = null;
+		int i = 0;
+		int length = query.length();
+		while( i < length ) {
+			char ch = query.charAt(i);
+			if( ch == '"' ) {
+				int end = query.indexOf('"', i + 1);
+				if( end < 0 ) end = length;
+				List<String> phrase = tokenize(query.substring(i + 1, end));
+				if( !phrase.isEmpty() ) result = and(result, phrase(phrase, scores));
+				i = end + 1;
+				continue;
+			}
+			if( Character.isWhitespace(ch) ) {
+				i++;
+				continue;
+			}
+			int end = i;
+			while( end < length && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"' ) end++;
+			String word = query.substring(i, end);
+			boolean prefix = word.endsWith("*") || end == length;
+			List<String> tokens = tokenize(word);
+			for( int t = 0; t < tokens.size(); t++ ) {
+				BitSet b = prefix && t == tokens.size() - 1 ? prefix(tokens.get(t), scores) : term(tokens.get(t), scores);
+				result = and(result, b);
+			}
+			i = end;
+		}
+		if( result == null ) return new BitSet();
+		return result;
+	}
+
+	private static BitSet and(BitSet acc, BitSet b) {
+		if( acc == null ) return b;
+		acc.and(b);
+		return acc;
+	}
+
+	private BitSet term(String word, float[] scores) {
+		BitSet b = new BitSet();
+		int t = Arrays.binarySearch(words, word);
+		if( t >= 0 ) collect(terms[t], b, scores);
+		return b;
+	}
+
+	private BitSet prefix(String start, float[] scores) {
+		BitSet b = new BitSet();
+		int from = lowerBound(start);
+		for( int t = from; t < words.length && words[t].startsWith(start); t++ ) collect(terms[t], b, scores);
+		return b;
+	}
+
+	/* Adds a word's cards to b, and their scores for the word to scores. */
+	private void collect(Term term, BitSet b, float[] scores) {
+		int[] tf = new int[FIELDS.length];
+		for( int i = 0; i < term.ordinals.length; i++ ) {
+			int ordinal = term.ordinals[i];
+			b.set(ordinal);
+			if( scores == null ) continue;
+			Arrays.fill(tf, 0);
+			for( int p = term.offsets[i]; p < term.offsets[i + 1]; p++ ) tf[term.positions[p] >>> FIELD_SHIFT]++;
+			scores[ordinal] += term.idf * weight(ordinal, tf);
+		}
+	}
+
+	/* Cards with the words next to each other, in order, within one field. */
+	private BitSet phrase(List<String> phrase, float[] scores) {
+		BitSet b = new BitSet();
+		Term[] parts = new Term[phrase.size()];
+		float idf = 0;
+		for( int k = 0; k < parts.length; k++ ) {
+			int t = Arrays.binarySearch(words, phrase.get(k));
+			if( t < 0 ) return b;
+			parts[k] = terms[t];
+			idf += parts[k].idf;
+		}
+
+		int[] tf = new int[FIELDS.length];
+		Term first = parts[0];
+		for( int i = 0; i < first.ordinals.length; i++ ) {
+			int ordinal = first.ordinals[i];
+			Arrays.fill(tf, 0);
+			boolean any = false;
+			for( int p = first.offsets[i]; p < first.offsets[i + 1]; p++ ) {
+				int start = first.positions[p];
+				boolean all = true;
+				for( int k = 1; k < parts.length && all; k++ ) {
+					all = hasPosition(parts[k], ordinal, start + k);
+				}
+				if( all && ((start + parts.length - 1) >>> FIELD_SHIFT) == (start >>> FIELD_SHIFT) ) {
+					tf[start >>> FIELD_SHIFT]++;
+					any = true;
+				}
+			}
+			if( any ) {
+				b.set(ordinal);
+				if( scores != null ) scores[ordinal] += idf * weight(ordinal, tf);
+			}
+		}
+		return b;
+	}
+
+	private static boolean hasPosition(Term term, int ordinal, int position) {
+		int i = Arrays.binarySearch(term.ordinals, ordinal);
+		if( i < 0 ) return false;
+		return Arrays.binarySearch(term.positions, term.offsets[i], term.offsets[i + 1], position) >= 0;
+	}
+
+	/* The BM25 term frequency part of the score, summed over the fields with their weights. */
+	private float weight(int ordinal, int[] tf) {
+		float w = 0;
+		for( int f = 0; f < FIELDS.length; f++ ) {
+			if( tf[f] == 0 ) continue;
+			float norm = 1 - B + B * lengths[ordinal * FIELDS.length + f] / averageLengths[f];
+			w += WEIGHTS[f] * tf[f] * (K1 + 1) / (tf[f] + K1 * norm);
+		}
+		return w;
+	}
+
+	/**
+	 * Narrows down the cards whose field contains a value, for {@link QueryElement.Operator#m}.
+	 * Every card that does contain it is in the result, but not every card in the
+	 * result necessarily does, so the caller still has to check them.
+	 *
+	 * @return The candidate ordinals, or null if the index can't narrow them down.
+	 */
+	BitSet candidates(Field field, String value) {
+		int f = Arrays.asList(FIELDS).indexOf(field);
+		if( f < 0 ) return null;
+		List<String> tokens = tokenize(value);
+		if( tokens.isEmpty() ) return null;
+
+		/*
+		 * If the value is a substring of the text, its first word is the end of a word
+		 * of the text, its last word the start of one, and the words in between whole
+		 * words.  A single word can be anywhere inside a word.
+		 */
+		BitSet result = null;
+		for( int k = 0; k < tokens.size(); k++ ) {
+			String token = tokens.get(k);
+			boolean first = k == 0;
+			boolean last = k == tokens.size() - 1;
+			BitSet b = new BitSet();
+			if( first && last ) {
+				for( int t = 0; t < words.length; t++ ) {
+					if( words[t].contains(token) ) collectField(terms[t], f, b);
+				}
+			}
+			else if( first ) {
+				for( int t = 0; t < words.length; t++ ) {
+					if( words[t].endsWith(token) ) collectField(terms[t], f, b);
+				}
+			}
+			else if( last ) {
+				for( int t = lowerBound(token); t < words.length && words[t].startsWith(token); t++ ) collectField(terms[t], f, b);
+			}
+			else {
+				int t = Arrays.binarySearch(words, token);
+				if( t >= 0 ) collectField(terms[t], f, b);
+			}
+			result = and(result, b);
+			if( result.isEmpty() ) break;
+		}
+		return result;
+	}
+
+	/* Adds the cards the word occurs in within field f to b. */
+	private static void collectField(Term term, int f, BitSet b) {
+		for( int i = 0; i < term.ordinals.length; i++ ) {
+			for( int p = term.offsets[i]; p < term.offsets[i + 1]; p++ ) {
+				if( term.positions[p] >>> FIELD_SHIFT == f ) {
+					b.set(term.ordinals[i]);
+					break;
+				}
+			}
+		}
+	}
+
+	/* The first word that is >= s. */
+	private int lowerBound(String s) {
+		int i = Arrays.binarySearch(words, s);
+		return i >= 0 ? i : -i - 1;
+	}
+
+	/**
+	 * Splits text into the words the index is made of.
+	 *
+	 * @return The lower-cased words, in order.
+	 */
+	static List<String> tokenize(String text) {
+		ArrayList<String> tokens = new ArrayList<String>();
+		if( text == null ) return tokens;
+		String lower = text.toLowerCase(Locale.ROOT);
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < lower.length(); i++ ) {
+			char ch = lower.charAt(i);
+			if( Character.isLetterOrDigit(ch) ) {
+				sb.append(ch);
+			}
+			else if( ch == '\'' || ch == '\u2019' ) {
+				continue;
+			}
+			else if( sb.length() > 0 ) {
+				tokens.add(sb.toString());
+				sb.setLength(0);
+			}
+		}
+		if( sb.length() > 0 ) tokens.add(sb.toString());
+		return tokens;
+	}
+}
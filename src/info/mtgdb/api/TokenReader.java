@@ -0,0 +1,259 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+/*
+ * Helpers for reading JSON values straight off a JSONTokener into fields, without
+ * building a JSONObject/JSONArray tree or boxing numbers first.  The Card, Ruling
+ * and Format constructors that take a JSONTokener are written against these.
+ *
+ * An object is read as:
+ *
+ *     TokenReader.beginObject(x);
+ *     for( String key = TokenReader.nextKey(x); key != null; key = TokenReader.nextKey(x) ) {
+ *         ... exactly one read*() or skipValue() call ...
+ *     }
+ *
+ * and an array as:
+ *
+ *     if( TokenReader.beginArray(x) ) {
+ *         while( TokenReader.nextElement(x) ) {
+ *             ... exactly one read*() or skipValue() call ...
+ *         }
+ *     }
+ */
+final class TokenReader {
+
+	private TokenReader() {
+
+	}
+
+	static void beginObject(JSONTokener x) throws JSONException {
+		if( x.nextClean() != '{' ) {
+			throw x.syntaxError("A JSONObject text must begin with '{'");
+		}
+	}
+
+	/**
+	 * @return The next key in the current object, or null at the closing '}'.
+	 */
+	static String nextKey(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		if( c == ',' ) c = x.nextClean();
+		if( c == '}' ) return null;
+		if( c != '"' && c != '\'' ) {
+			throw x.syntaxError("Expected a quoted key");
+		}
+		String key = x.nextString(c);
+		if( x.nextClean() != ':' ) {
+			throw x.syntaxError("Expected a ':' after a key");
+		}
+		return key;
+	}
+
+	/**
+	 * @return true if an array follows, false if the value is null.
+	 */
+	static boolean beginArray(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		if( c == '[' ) return true;
+		if( c == 'n' ) {
+			expect(x, "ull");
+			return false;
+		}
+		throw x.syntaxError("A JSONArray text must start with '['");
+	}
+
+	/**
+	 * @return true if another element follows, false at the closing ']'.
+	 */
+	static boolean nextElement(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		if( c == ',' ) c = x.nextClean();
+		if( c == ']' ) return false;
+		if( c == 0 ) throw x.syntaxError("A JSONArray text must end with ']'");
+		x.back();
+		return true;
+	}
+
+	/**
+	 * Reads a number (or a quoted number) without boxing it.
+	 * 
+	 * @param fallback Returned for null or anything that isn't a number.
+	 */
+	static int readInt(JSONTokener x, int fallback) throws JSONException {
+		char c = x.nextClean();
+		if( c == '"' || c == '\'' ) {
+			String s = x.nextString(c).trim();
+			try {
+				return Integer.parseInt(s);
+			} catch (NumberFormatException e) {
+				try {
+					return (int) Double.parseDouble(s);
+				} catch (NumberFormatException e2) {
+					return fallback;
+				}
+			}
+		}
+		if( c == 'n' ) {
+			expect(x, "ull");
+			return fallback;
+		}
+
+		boolean negative = false;
+		if( c == '-' ) {
+			negative = true;
+			c = x.next();
+		}
+		long value = 0;
+		int digits = 0;
+		while( c >= '0' && c <= '9' ) {
+			value = value * 10 + (c - '0');
+			digits++;
+			c = x.next();
+		}
+		if( c == '.' || c == 'e' || c == 'E' ) {
+			/* Rare enough to take the slow way, truncating like JSONObject.getInt(). */
+			StringBuilder sb = new StringBuilder();
+			if( negative ) sb.append('-');
+			sb.append(value).append(c);
+			c = x.next();
+			while( (c >= '0' && c <= '9') || c == '-' || c == '+' || c == 'e' || c == 'E' ) {
+				sb.append(c);
+				c = x.next();
+			}
+			x.back();
+			return (int) Double.parseDouble(sb.toString());
+		}
+		x.back();
+		if( digits == 0 ) {
+			skipValue(x);
+			return fallback;
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * @return The string, the text of a bare value such as a number, or null for null.
+	 */
+	static String readString(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		if( c == '"' || c == '\'' ) return x.nextString(c);
+		if( c == 'n' ) {
+			expect(x, "ull");
+			return null;
+		}
+		x.back();
+		return x.nextValue().toString();
+	}
+
+	/**
+	 * @return The boolean, with null, anything other than true or "true" reading as false.
+	 */
+	static boolean readBoolean(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		switch( c ) {
+		case 't':
+			expect(x, "rue");
+			return true;
+		case 'f':
+			expect(x, "alse");
+			return false;
+		case 'n':
+			expect(x, "ull");
+			return false;
+		case '"':
+		case '\'':
+			return "true".equalsIgnoreCase(x.nextString(c));
+		default:
+			x.back();
+			skipValue(x);
+			return false;
+		}
+	}
+
+	/**
+	 * Consumes the next value, whatever it is, without building anything from it.
+	 */
+	static void skipValue(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		switch( c ) {
+		case '"':
+		case '\'':
+			skipString(x, c);
+			return;
+		case '{':
+		case '[':
+			int depth = 1;
+			while( depth > 0 ) {
+				c = x.next();
+				switch( c ) {
+				case 0:
+					throw x.syntaxError("Unterminated value");
+				case '"':
+				case '\'':
+					skipString(x, c);
+					break;
+				case '{':
+				case '[':
+					depth++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					break;
+				default:
+					break;
+				}
+			}
+			return;
+		default:
+			while( c > ' ' && ",:]}".indexOf(c) < 0 ) {
+				c = x.next();
+			}
+			x.back();
+		}
+	}
+
+	private static void skipString(JSONTokener x, char quote) throws JSONException {
+		for( ;; ) {
+			char c = x.next();
+			if( c == 0 ) throw x.syntaxError("Unterminated string");
+			if( c == '\\' ) x.next();
+			else if( c == quote ) return;
+		}
+	}
+
+	private static void expect(JSONTokener x, String rest) throws JSONException {
+		for( int i = 0; i < rest.length(); i++ ) {
+			if( x.next() != rest.charAt(i) ) {
+				throw x.syntaxError("Expected '"+rest+"'");
+			}
+		}
+	}
+}
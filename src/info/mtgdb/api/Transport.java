@@ -0,0 +1,48 @@
+package info.mtgdb.api;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The layer {@link Db} uses to fetch the raw JSON for a URL.  The default is an
+ * {@link HttpTransport}, but anything that can turn a URL into a stream (a local
+ * file mirror, a canned response for testing, ...) can be plugged in with
+ * {@link Db#setTransport(Transport)}.
+ */
+public interface Transport {
+
+	/**
+	 * Open the response body for a URL.  The caller will always close the returned
+	 * stream once it is done with it, which is what allows an implementation to hand
+	 * the underlying connection back to a pool.
+	 *
+	 * @param url A string representation of a complete URL.
+	 * @return An {@link InputStream} over the response body.
+	 * @throws IOException If the request could not be made or did not succeed.
+	 */
+	InputStream open(String url) throws IOException;
+}
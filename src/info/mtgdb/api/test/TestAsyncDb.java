@@ -0,0 +1,129 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import info.mtgdb.api.AsyncDb;
+import info.mtgdb.api.Card;
+import info.mtgdb.api.Db;
+import info.mtgdb.api.Transport;
+
+import org.junit.Test;
+
+public class TestAsyncDb {
+
+	/* Answers /cards/random with a card, /cards/ with a list, and fails everything else. */
+	static Transport transport() {
+		return new Transport() {
+			public InputStream open(String url) throws IOException {
+				String path = url.substring(Db.API_URL.length());
+				String body;
+				if( path.equals("/cards/random") ) body = "{\"id\":7,\"name\":\"Shock\"}";
+				else if( path.equals("/cards/") ) body = "[{\"id\":1},{\"id\":2}]";
+				else throw new IOException("No response for "+path);
+				return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	@Test
+	public void testRunsOnTheGivenExecutor() throws Exception {
+		final String[] threadName = new String[1];
+		Transport previous = Db.getTransport();
+		final Transport cards = transport();
+		Db.setTransport(new Transport() {
+			public InputStream open(String url) throws IOException {
+				threadName[0] = Thread.currentThread().getName();
+				return cards.open(url);
+			}
+		});
+		ExecutorService pool = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-executor"));
+		try {
+			AsyncDb.setExecutor(pool);
+			assertSame(pool, AsyncDb.getExecutor());
+			Card c = AsyncDb.getRandom().get(5, TimeUnit.SECONDS);
+			assertEquals(7, c.getId());
+			assertEquals("Shock", c.getName());
+			assertEquals("The request ran on the executor given.", "test-executor", threadName[0]);
+
+			List<Card> all = AsyncDb.getCards().get(5, TimeUnit.SECONDS);
+			assertEquals(2, all.size());
+		} finally {
+			AsyncDb.setExecutor(null);
+			pool.shutdown();
+			Db.setTransport(previous);
+		}
+	}
+
+	@Test
+	public void testFailureCompletesWithNull() throws Exception {
+		Transport previous = Db.getTransport();
+		Db.setTransport(transport());
+		try {
+			StringBuilder printed = new StringBuilder();
+			CompletableFuture<Card> f = TestDbFetching.quietly(() -> {
+				CompletableFuture<Card> started = AsyncDb.getCard(1);
+				started.handle((c, e) -> c).get(5, TimeUnit.SECONDS);
+				return started;
+			}, printed);
+			assertFalse("A failed request is not an exceptional completion.", f.isCompletedExceptionally());
+			assertNull(f.get());
+			assertTrue(printed.toString().contains("No response for /cards/1"));
+		} finally {
+			Db.setTransport(previous);
+		}
+	}
+
+	@Test
+	public void testNullRestoresTheDefaultExecutor() throws Exception {
+		Executor defaultExecutor = AsyncDb.getExecutor();
+		Transport previous = Db.getTransport();
+		Db.setTransport(transport());
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			AsyncDb.setExecutor(pool);
+			AsyncDb.setExecutor(null);
+			assertSame(defaultExecutor, AsyncDb.getExecutor());
+			pool.shutdown();
+			assertEquals("Calls still run once the old executor is gone.", 7, AsyncDb.getRandom().get(5, TimeUnit.SECONDS).getId());
+		} finally {
+			AsyncDb.setExecutor(null);
+			pool.shutdown();
+			Db.setTransport(previous);
+		}
+	}
+}
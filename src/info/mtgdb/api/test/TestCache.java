@@ -0,0 +1,105 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import info.mtgdb.api.Cache;
+import info.mtgdb.api.Card;
+import info.mtgdb.api.Db;
+import info.mtgdb.api.Transport;
+
+import org.junit.Test;
+
+public class TestCache {
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		/* One stripe, so the eviction order is exact. */
+		Cache<Integer, String> cache = new Cache<Integer, String>(1);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		assertNull(cache.get(1));
+		assertEquals("two", cache.get(2));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		Cache<Integer, String> big = new Cache<Integer, String>(64);
+		for( int i = 0; i < 1000; i++ ) big.put(i, Integer.toString(i));
+		assertTrue(big.size() <= 64);
+		assertEquals(1000 - big.size(), big.getEvictionCount());
+
+		/* Sizes that aren't a power of two are spread over the stripes without rounding up. */
+		for( int max : new int[] { 3, 100 } ) {
+			Cache<Integer, String> odd = new Cache<Integer, String>(max);
+			for( int i = 0; i < 1000; i++ ) odd.put(i, Integer.toString(i));
+			assertEquals(max, odd.size());
+		}
+	}
+
+	@Test
+	public void testTimeToLive() throws InterruptedException {
+		Cache<String, String> cache = new Cache<String, String>(10, 20, TimeUnit.MILLISECONDS);
+		cache.put("a", "b");
+		assertEquals("b", cache.get("a"));
+		Thread.sleep(50);
+		assertNull(cache.get("a"));
+		assertEquals(1, cache.getExpirationCount());
+
+		cache.put("c", "d");
+		cache.put("c", null);
+		assertNull("Putting null removes the key.", cache.get("c"));
+	}
+
+	@Test
+	public void testDbCardCache() {
+		final AtomicInteger requests = new AtomicInteger();
+		Transport previous = Db.getTransport();
+		Db.setTransport(new Transport() {
+			public InputStream open(String url) throws IOException {
+				requests.incrementAndGet();
+				return new ByteArrayInputStream("{\"id\":1,\"name\":\"Sphinx\"}".getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		Db.setCardCache(new Cache<String, Card>(100));
+		try {
+			Card first = Db.getCard(1);
+			assertSame(first, Db.getCard(1));
+			assertEquals(1, requests.get());
+			assertEquals(1, Db.getCardCache().getHitCount());
+		} finally {
+			Db.setCardCache(null);
+			Db.setTransport(previous);
+		}
+	}
+}
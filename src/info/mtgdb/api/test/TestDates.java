@@ -0,0 +1,62 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+
+import info.mtgdb.api.Card;
+import info.mtgdb.api.Dates;
+
+import org.junit.Test;
+
+public class TestDates {
+
+	@Test
+	public void testParseEpochDay() {
+		assertEquals("The time of day is ignored.", 8617, Dates.parseEpochDay("1993-08-05T00:00:00"));
+		assertEquals(16160, Dates.parseEpochDay("2014-03-31"));
+		assertEquals(0, Dates.parseEpochDay("1970-01-01"));
+		assertEquals(LocalDate.of(2014, 3, 31), Dates.toLocalDate(Dates.parseEpochDay("2014-03-31")));
+
+		assertEquals(Dates.EPOCH_DAY_NOT_SET, Dates.parseEpochDay(null));
+		assertEquals(Dates.EPOCH_DAY_NOT_SET, Dates.parseEpochDay("not a date"));
+		assertEquals("There is no February 30th.", Dates.EPOCH_DAY_NOT_SET, Dates.parseEpochDay("2014-02-30"));
+		assertEquals(Dates.EPOCH_DAY_NOT_SET, Dates.parseEpochDay("2014-13-01"));
+		assertEquals(Dates.EPOCH_DAY_NOT_SET, Dates.parseEpochDay(""));
+	}
+
+	@Test
+	public void testCardReleasedAt() {
+		Card c = new Card();
+		assertNull(c.getReleasedAt());
+		c.setReleasedAt("1994-06-01T00:00:00");
+		assertEquals("1994-06-01", c.getReleasedAt());
+		assertEquals(LocalDate.of(1994, 6, 1), c.getReleasedAtDate());
+		c.setReleasedAt("2014-02-30");
+		assertNull(c.getReleasedAt());
+	}
+}
@@ -0,0 +1,347 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import info.mtgdb.api.Card;
+import info.mtgdb.api.CardBatchLoader;
+import info.mtgdb.api.Db;
+import info.mtgdb.api.Transport;
+
+import org.junit.Test;
+
+public class TestDbFetching {
+
+	@Test
+	public void testConcurrentRequestsShareOneFetch() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		Transport previous = Db.getTransport();
+		Db.setTransport(new Transport() {
+			public InputStream open(String url) throws IOException {
+				requests.incrementAndGet();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return new ByteArrayInputStream("[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ArrayList<Card>>> results = new ArrayList<Future<ArrayList<Card>>>();
+			for( int i = 0; i < 8; i++ ) results.add(pool.submit(() -> Db.getCardsFromUrl("http://example/cards/1,2")));
+			/* Give every thread time to join the first one's request. */
+			Thread.sleep(200);
+			release.countDown();
+
+			ArrayList<Card> first = results.get(0).get();
+			assertEquals(2, first.size());
+			for( int i = 1; i < results.size(); i++ ) {
+				ArrayList<Card> cards = results.get(i).get();
+				assertNotSame("Each caller gets its own list.", first, cards);
+				assertSame("The cards are shared.", first.get(0), cards.get(0));
+			}
+			assertEquals(1, requests.get());
+		} finally {
+			pool.shutdown();
+			Db.setTransport(previous);
+		}
+	}
+
+	@Test
+	public void testRandomCardsAreNotShared() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		final CountDownLatch arrived = new CountDownLatch(4);
+		Transport previous = Db.getTransport();
+		Db.setTransport(new Transport() {
+			public InputStream open(String url) throws IOException {
+				int id = requests.incrementAndGet();
+				arrived.countDown();
+				try {
+					/* Hold every request open until all four callers have made one. */
+					arrived.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return new ByteArrayInputStream(("{\"id\":"+id+"}").getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Card>> results = new ArrayList<Future<Card>>();
+			for( int i = 0; i < 4; i++ ) results.add(pool.submit(() -> Db.getRandom()));
+			for( Future<Card> f : results ) assertNotNull(f.get());
+			assertEquals("Every caller makes its own request.", 4, requests.get());
+		} finally {
+			pool.shutdown();
+			Db.setTransport(previous);
+		}
+	}
+
+	@Test
+	public void testFailedFirstReadClosesTheStream() throws Exception {
+		final AtomicInteger closes = new AtomicInteger();
+		Transport previous = Db.getTransport();
+		Db.setTransport(new Transport() {
+			public InputStream open(String url) throws IOException {
+				return new InputStream() {
+					public int read() throws IOException {
+						throw new IOException("Read timed out");
+					}
+
+					public void close() {
+						closes.incrementAndGet();
+					}
+				};
+			}
+		});
+		try {
+			StringBuilder printed = new StringBuilder();
+			assertNull(quietly(() -> Db.getCardsFromUrl("http://example/cards/1,2"), printed));
+			assertTrue("The stream is closed so its connection is handed back.", closes.get() >= 1);
+		} finally {
+			Db.setTransport(previous);
+		}
+	}
+
+	/* Answers /cards/{ids} with a card for each id below 1000, and /cards/{id} with just the card. */
+	static Transport cardsTransport(final List<String> urls) {
+		return new Transport() {
+			public InputStream open(String url) throws IOException {
+				synchronized( urls ) {
+					urls.add(url);
+				}
+				String[] ids = url.substring(url.lastIndexOf('/') + 1).split(",");
+				if( ids.length == 1 ) {
+					if( Integer.parseInt(ids[0]) >= 1000 ) throw new FileNotFoundException(url);
+					return new ByteArrayInputStream(("{\"id\":"+ids[0]+"}").getBytes(StandardCharsets.UTF_8));
+				}
+				StringBuilder sb = new StringBuilder("[");
+				for( String id : ids ) {
+					if( Integer.parseInt(id) >= 1000 ) continue;
+					if( sb.length() > 1 ) sb.append(',');
+					sb.append("{\"id\":").append(id).append('}');
+				}
+				sb.append(']');
+				return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	@Test
+	public void testBatchLoader() throws Exception {
+		List<String> urls = new ArrayList<String>();
+		Transport previous = Db.getTransport();
+		Db.setTransport(cardsTransport(urls));
+		try {
+			CardBatchLoader loader = new CardBatchLoader(1, TimeUnit.SECONDS, 3);
+			CompletableFuture<Card> a = loader.load(1);
+			assertSame("Repeated ids share a lookup.", a, loader.load(1));
+			CompletableFuture<Card> b = loader.load(2);
+			CompletableFuture<Card> missing = loader.load(1001);
+			assertEquals("A full batch is sent at once.", 1, a.get().getId());
+			assertEquals(2, b.get().getId());
+			assertNull(missing.get());
+
+			CompletableFuture<Card> c = loader.load(3);
+			loader.flush();
+			assertEquals(3, c.get().getId());
+			assertEquals(2, urls.size());
+
+			loader = new CardBatchLoader(10, TimeUnit.MILLISECONDS, 100);
+			List<Card> cards = loader.loadAll(Arrays.asList(5, 4, 6)).get();
+			assertEquals(4, cards.get(1).getId());
+			assertEquals("The window sends a batch that isn't full.", 3, urls.size());
+
+			assertEquals("A lone lookup gets its card.", 7, loader.load(7).get().getId());
+			assertTrue(urls.get(3).endsWith("/cards/7"));
+		} finally {
+			Db.setTransport(previous);
+		}
+	}
+
+	@Test
+	public void testChunkedGetCards() throws Exception {
+		final List<String> urls = new ArrayList<String>();
+		final Transport cards = cardsTransport(urls);
+		Transport previous = Db.getTransport();
+		int previousIds = Db.getMaxIdsPerRequest();
+		int previousParallel = Db.getMaxParallelRequests();
+		Db.setTransport(new Transport() {
+			public InputStream open(String url) throws IOException {
+				if( url.endsWith(",13") ) throw new IOException("Unlucky.");
+				return cards.open(url);
+			}
+		});
+		try {
+			Db.setMaxIdsPerRequest(2);
+			Db.setMaxParallelRequests(3);
+			ArrayList<Card> result = Db.getCards(new ArrayList<Integer>(Arrays.asList(7, 3, 1001, 3, 5, 2, 9)));
+			assertEquals("Repeated ids are asked for once.", 3, urls.size());
+			assertEquals(6, result.size());
+			int[] expected = { 7, 3, 3, 5, 2, 9 };
+			for( int i = 0; i < expected.length; i++ ) {
+				assertEquals("Cards come back in the order asked for.", expected[i], result.get(i).getId());
+			}
+			assertSame("A repeated id gets the same card at each position.", result.get(1), result.get(2));
+
+			/* A deck list with four copies of a card gets four cards back from one request. */
+			urls.clear();
+			result = Db.getCards(new ArrayList<Integer>(Arrays.asList(42, 8, 42, 42, 42)));
+			assertEquals(1, urls.size());
+			assertEquals(5, result.size());
+			for( int i : new int[] { 0, 2, 3, 4 } ) assertEquals(42, result.get(i).getId());
+			assertEquals(8, result.get(1).getId());
+
+			urls.clear();
+			Db.setMaxIdsPerRequest(previousIds);
+			ArrayList<Integer> many = new ArrayList<Integer>();
+			for( int i = 1; i <= previousIds + 1; i++ ) many.add(i);
+			result = Db.getCards(many);
+			assertEquals("No request is left with a single id.", 2, urls.size());
+			assertEquals(many.size(), result.size());
+			assertEquals(previousIds + 1, result.get(previousIds).getId());
+
+			result = Db.getCards(new ArrayList<Integer>(Arrays.asList(42)));
+			assertEquals("A lone id is asked for as one card.", 42, result.get(0).getId());
+
+			StringBuilder printed = new StringBuilder();
+			assertNull("A failed request fails the call.", quietly(() -> Db.getCards(new ArrayList<Integer>(Arrays.asList(1, 2, 4, 13))), printed));
+			assertTrue(printed.toString().contains("Unlucky."));
+		} finally {
+			Db.setTransport(previous);
+			Db.setMaxIdsPerRequest(previousIds);
+			Db.setMaxParallelRequests(previousParallel);
+		}
+	}
+
+	/* Serves sets AAA, BBB and CCC with 5, 2 and 3 cards, CCC without a total. */
+	static Transport setsTransport(final List<String> urls) {
+		final String[] ids = { "AAA", "BBB", "CCC" };
+		final int[] sizes = { 5, 2, 3 };
+		final int[] totals = { 5, 2, 0 };
+		return new Transport() {
+			public InputStream open(String url) throws IOException {
+				synchronized( urls ) {
+					urls.add(url);
+				}
+				String path = url.substring(Db.API_URL.length());
+				StringBuilder sb = new StringBuilder();
+				if( path.equals("/sets/") ) {
+					sb.append('[');
+					for( int i = 0; i < ids.length; i++ ) {
+						if( i > 0 ) sb.append(',');
+						sb.append("{\"id\":\"").append(ids[i]).append("\",\"total\":").append(totals[i]).append('}');
+					}
+					sb.append(']');
+				} else {
+					int set = Arrays.asList(ids).indexOf(path.substring(6, 9));
+					if( path.length() == 9 ) {
+						sb.append("{\"id\":\"").append(ids[set]).append("\",\"total\":").append(totals[set]).append('}');
+					} else {
+						String[] range = path.substring(path.indexOf('?') + 1).split("&");
+						long start = Long.parseLong(range[0].substring(6));
+						long end = Math.min(sizes[set], Long.parseLong(range[1].substring(4)));
+						sb.append('[');
+						for( long n = start; n <= end; n++ ) {
+							if( n > start ) sb.append(',');
+							sb.append("{\"id\":").append((set + 1) * 100 + n).append('}');
+						}
+						sb.append(']');
+					}
+				}
+				return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	@Test
+	public void testParallelPages() throws Exception {
+		List<String> urls = new ArrayList<String>();
+		Transport previous = Db.getTransport();
+		int previousPageSize = Db.getPageSize();
+		Db.setTransport(setsTransport(urls));
+		try {
+			Db.setPageSize(2);
+			ArrayList<Card> cards = Db.getSetCardsInParallel("AAA", 4);
+			assertEquals("The set and three pages are fetched.", 4, urls.size());
+			assertEquals(5, cards.size());
+			for( int i = 0; i < cards.size(); i++ ) {
+				assertEquals("Pages are joined in order.", 101 + i, cards.get(i).getId());
+			}
+
+			urls.clear();
+			assertEquals("An empty list asks for every set.", 3, Db.getSets(new ArrayList<String>()).size());
+			assertTrue(urls.get(0).endsWith("/sets/"));
+
+			urls.clear();
+			cards = Db.getCardsInParallel(3);
+			assertEquals("The set list and 3 + 1 + 1 pages are fetched.", 6, urls.size());
+			int[] expected = { 101, 102, 103, 104, 105, 201, 202, 301, 302, 303 };
+			assertEquals(expected.length, cards.size());
+			for( int i = 0; i < expected.length; i++ ) {
+				assertEquals("Sets are joined in order.", expected[i], cards.get(i).getId());
+			}
+		} finally {
+			Db.setTransport(previous);
+			Db.setPageSize(previousPageSize);
+		}
+	}
+
+	/* Runs a call that is expected to fail, keeping what Db prints about it off the console. */
+	static <T> T quietly(Callable<T> call, StringBuilder printed) throws Exception {
+		PrintStream previous = System.err;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		System.setErr(new PrintStream(out, true, "UTF-8"));
+		try {
+			return call.call();
+		} finally {
+			System.setErr(previous);
+			printed.append(new String(out.toByteArray(), StandardCharsets.UTF_8));
+		}
+	}
+}
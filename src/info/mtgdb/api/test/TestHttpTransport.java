@@ -0,0 +1,173 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import info.mtgdb.api.HttpTransport;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestHttpTransport {
+
+	/* Serves /ok, /gzip, /missing (a 404 with a body) and /down (a 503), recording which client port asked. */
+	static HttpServer server(final List<Integer> ports) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				synchronized( ports ) {
+					ports.add(exchange.getRemoteAddress().getPort());
+				}
+				String path = exchange.getRequestURI().getPath();
+				byte[] body;
+				int status = 200;
+				if( path.equals("/gzip") ) {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+					gzip.write("[{\"id\":1}]".getBytes(StandardCharsets.UTF_8));
+					gzip.close();
+					body = bytes.toByteArray();
+					exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				} else if( path.equals("/missing") ) {
+					body = "{\"message\":\"No such card.\"}".getBytes(StandardCharsets.UTF_8);
+					status = 404;
+				} else if( path.equals("/down") ) {
+					body = "Try again later.".getBytes(StandardCharsets.UTF_8);
+					status = 503;
+				} else {
+					body = "[]".getBytes(StandardCharsets.UTF_8);
+				}
+				exchange.sendResponseHeaders(status, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	static String url(HttpServer server, String path) {
+		return "http://127.0.0.1:"+server.getAddress().getPort()+path;
+	}
+
+	static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[256];
+		for( int n = in.read(buf); n != -1; n = in.read(buf) ) out.write(buf, 0, n);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testPermitIsHandedBack() throws IOException {
+		HttpServer server = server(new ArrayList<Integer>());
+		/* One connection, and a short wait for it, so a lost permit shows up as a timeout. */
+		HttpTransport transport = new HttpTransport(1, 500, 5000);
+		try {
+			InputStream in = transport.open(url(server, "/ok"));
+			assertEquals("[]", read(in));
+			in.close();
+			in.close();
+
+			InputStream second = transport.open(url(server, "/ok"));
+			try {
+				transport.open(url(server, "/ok")).close();
+				fail("Closing twice handed back two permits.");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out"));
+			}
+			second.close();
+
+			try {
+				transport.open(url(server, "/missing"));
+				fail("A 404 is an error.");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("404"));
+			}
+			try {
+				transport.open(url(server, "/down"));
+				fail("A 503 is an error.");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("503"));
+			}
+			/* Both errors handed their permit back, or this would time out. */
+			transport.open(url(server, "/ok")).close();
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testErrorBodyIsDrained() throws IOException {
+		List<Integer> ports = new ArrayList<Integer>();
+		HttpServer server = server(ports);
+		HttpTransport transport = new HttpTransport();
+		try {
+			try {
+				transport.open(url(server, "/missing"));
+				fail("A 404 is an error.");
+			} catch (IOException e) {
+				/* Expected. */
+			}
+			InputStream in = transport.open(url(server, "/ok"));
+			read(in);
+			in.close();
+			assertEquals(2, ports.size());
+			assertEquals("The drained connection is used again.", ports.get(0), ports.get(1));
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testGzipIsDecoded() throws IOException {
+		HttpServer server = server(new ArrayList<Integer>());
+		try {
+			InputStream in = new HttpTransport().open(url(server, "/gzip"));
+			try {
+				assertEquals("[{\"id\":1}]", read(in));
+			} finally {
+				in.close();
+			}
+		} finally {
+			server.stop(0);
+		}
+	}
+}
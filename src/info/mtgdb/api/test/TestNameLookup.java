@@ -0,0 +1,84 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import info.mtgdb.api.Card;
+import info.mtgdb.api.FuzzyNameIndex;
+import info.mtgdb.api.NameTrie;
+
+import org.junit.Test;
+
+public class TestNameLookup {
+
+	static Card card(int id, String name) {
+		Card c = new Card();
+		c.setId(id);
+		c.setName(name);
+		return c;
+	}
+
+	static ArrayList<Card> cards() {
+		ArrayList<Card> cards = new ArrayList<Card>();
+		cards.add(card(1, "Gaea's Liege"));
+		cards.add(card(2, "Gaea's Cradle"));
+		cards.add(card(3, "Gaea's Anthem"));
+		cards.add(card(4, "Garruk Wildspeaker"));
+		cards.add(card(5, "Gaea's Cradle"));
+		cards.add(card(6, "Shock"));
+		return cards;
+	}
+
+	@Test
+	public void testCompletion() {
+		NameTrie names = new NameTrie(cards());
+		assertArrayEquals("Alphabetical when scores are equal.", new int[] { 3, 2, 5, 1 }, names.complete("Gaea", 10));
+		assertArrayEquals(new int[] { 3, 2 }, names.complete("gaea", 2));
+		assertArrayEquals("Search names match without punctuation.", new int[] { 2, 5 }, names.complete("gaeascr", 10));
+		assertArrayEquals(new int[] { 6 }, names.complete("SHOCK", 10));
+		assertEquals(0, names.complete("Shocks", 10).length);
+	}
+
+	@Test
+	public void testScoredCompletion() {
+		NameTrie names = new NameTrie(cards(), c -> c.getId());
+		assertArrayEquals(new int[] { 5, 4, 3 }, names.complete("ga", 3));
+		assertArrayEquals("Each id is returned once.", new int[] { 5, 3, 2, 1 }, names.complete("gaea", 10));
+	}
+
+	@Test
+	public void testFuzzyLookup() {
+		FuzzyNameIndex names = new FuzzyNameIndex(cards());
+		assertArrayEquals(new int[] { 2, 5 }, names.find("Gaeas Cradel", 2, 0));
+		assertArrayEquals("Closest name first.", new int[] { 1, 3 }, names.find("gaea's liege", 8, 2));
+		assertEquals(0, names.find("Gaeas Cradel", 1, 0).length);
+		assertArrayEquals("Short names are found too.", new int[] { 6 }, names.find("shok", 1, 0));
+		assertArrayEquals(new int[] { 4 }, names.findClosest("Garuk Wildspeakr"));
+		assertEquals(0, names.findClosest("Lightning Bolt").length);
+	}
+}
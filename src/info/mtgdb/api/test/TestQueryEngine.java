@@ -0,0 +1,318 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+
+import info.mtgdb.api.Card;
+import info.mtgdb.api.CardIndex;
+import info.mtgdb.api.CardTable;
+import info.mtgdb.api.Color;
+import info.mtgdb.api.ManaCost;
+import info.mtgdb.api.MappedCardFile;
+import info.mtgdb.api.ComplexQuery;
+import info.mtgdb.api.Format;
+import info.mtgdb.api.Legality;
+import info.mtgdb.api.LegalityMatrix;
+import info.mtgdb.api.QueryElement;
+import info.mtgdb.api.QueryElement.Field;
+import info.mtgdb.api.QueryElement.Operator;
+import info.mtgdb.api.QueryEngine;
+import info.mtgdb.api.TextIndex;
+
+import org.junit.Test;
+
+public class TestQueryEngine {
+
+	static Card card(int id, String name, String type, int cmc, int power, String... colors) {
+		Card c = new Card();
+		c.setId(id);
+		c.setName(name);
+		c.setType(type);
+		c.setConvertedManaCost(cmc);
+		c.setPower(power);
+		c.setColors(new ArrayList<String>(Arrays.asList(colors)));
+		return c;
+	}
+
+	static ArrayList<Card> cards() {
+		ArrayList<Card> cards = new ArrayList<Card>();
+		cards.add(card(1, "Sphinx", "Creature", 4, 5, "blue"));
+		cards.add(card(2, "Drake", "Creature", 4, 2, "blue"));
+		cards.add(card(3, "Giant", "Legendary Creature", 4, 6, "blue", "green"));
+		cards.add(card(4, "Shock", "Instant", 1, Card.INT_VALUE_NOT_SET, "red"));
+		cards.add(card(5, "Fires", "Sorcery", 3, Card.INT_VALUE_NOT_SET, "green", "red"));
+		cards.add(card(6, "Titan", "Creature", 6, 6, "green"));
+		return cards;
+	}
+
+	static ArrayList<Integer> ids(ArrayList<Card> cards) {
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for( Card c : cards ) ids.add(c.getId());
+		return ids;
+	}
+
+	@Test
+	public void testComplexQuery() {
+		QueryEngine engine = new QueryEngine(cards());
+
+		ComplexQuery cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.convertedmanacost, Operator.eq, 4));
+		cq.addQueryElement(new QueryElement(Field.type, Operator.m, "'Creature'"));
+		cq.addQueryElement(new QueryElement(Field.color, Operator.eq, "blue"));
+		cq.addQueryElement(new QueryElement(Field.power, Operator.gte, 5));
+		assertEquals(Arrays.asList(1, 3), ids(engine.query(cq)));
+
+		cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.type, Operator.m, "'Sorcery'"));
+		cq.addQueryElement(new QueryElement(Field.color, Operator.eq, "green"));
+		cq.addQueryElement(new QueryElement(Field.color, Operator.eq, "red"));
+		cq.addQueryElement(new QueryElement(Field.convertedmanacost, Operator.lt, 5));
+		assertEquals(Arrays.asList(5), ids(engine.query(cq)));
+	}
+
+	@Test
+	public void testNotSetNeverMatchesNumbers() {
+		QueryEngine engine = new QueryEngine(cards());
+		ComplexQuery cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.power, Operator.lt, 100));
+		assertEquals(Arrays.asList(1, 2, 3, 6), ids(engine.query(cq)));
+
+		cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.color, Operator.not, "blue"));
+		cq.addQueryElement(new QueryElement(Field.type, Operator.not, "creature"));
+		assertEquals(Arrays.asList(4, 5), ids(engine.query(cq)));
+	}
+
+	@Test
+	public void testStartAndLimit() {
+		QueryEngine engine = new QueryEngine(cards());
+		ComplexQuery cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.type, Operator.m, "creature"));
+		cq.setStart(1);
+		cq.setLimit(2);
+		assertEquals(Arrays.asList(2, 3), ids(engine.query(cq)));
+	}
+
+	@Test
+	public void testIndexLookups() {
+		CardIndex index = new CardIndex(cards());
+		assertEquals(Arrays.asList(1, 2, 3), ids(index.getCards(index.withColor("Blue"))));
+
+		BitSet greenCreatures = index.withColor("green");
+		greenCreatures.and(index.withType("creature"));
+		assertEquals(Arrays.asList(6), ids(index.getCards(greenCreatures)));
+		assertEquals("Unknown values match nothing.", 0, index.withCardSetId("XXX").cardinality());
+		assertEquals("No test card is a token.", 6, index.tokens(false).cardinality());
+	}
+
+	@Test
+	public void testRangeIndexes() {
+		CardIndex index = new CardIndex(cards());
+		assertEquals(Arrays.asList(1, 2, 3, 5), ids(index.getCards(index.range(Field.convertedmanacost, 3, 4))));
+		assertEquals("Cards without a power are not in the index.", 4,
+				index.range(Field.power, Integer.MIN_VALUE, Integer.MAX_VALUE).cardinality());
+
+		ComplexQuery cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.power, Operator.gte, 6));
+		assertEquals(Arrays.asList(3, 6), ids(new QueryEngine(index).query(cq)));
+
+		cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.power, Operator.not, 6));
+		assertEquals(Arrays.asList(1, 2), ids(new QueryEngine(index).query(cq)));
+	}
+
+	@Test
+	public void testTextSearch() {
+		ArrayList<Card> cards = cards();
+		cards.get(0).setDescription("Flying. Whenever Sphinx attacks, draw a card.");
+		cards.get(1).setDescription("Flying");
+		cards.get(3).setDescription("Shock deals 2 damage to any target.");
+		cards.get(4).setDescription("Fires deals damage divided as you choose among any number of creatures.");
+		cards.get(5).setFlavor("Gaea's titan walks the land.");
+		TextIndex text = new CardIndex(cards).getTextIndex();
+
+		assertEquals("Shorter text ranks first.", Arrays.asList(2, 1), ids(text.search("flying ")));
+		assertEquals(Arrays.asList(4, 5), ids(text.search("deals damage ")));
+		assertEquals(Arrays.asList(4), ids(text.search("\"deals 2 damage\"")));
+		assertEquals("Words in the wrong order are not a phrase.", 0, text.search("\"damage deals\"").size());
+		assertEquals("The last word is a prefix.", 5, text.search("creat").size());
+		assertEquals(Arrays.asList(6), ids(text.search("gaeas ")));
+		assertEquals(1, text.search("fl", 1).size());
+
+		ComplexQuery cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.description, Operator.m, "'ing. whenever sph'"));
+		assertEquals(Arrays.asList(1), ids(new QueryEngine(cards).query(cq)));
+	}
+
+	@Test
+	public void testCardTable() {
+		ArrayList<Card> cards = cards();
+		CardTable table = new CardTable(cards);
+		assertEquals(cards.size(), table.size());
+		for( int i = 0; i < cards.size(); i++ ) {
+			Card c = cards.get(i);
+			Card view = table.get(i);
+			assertEquals(c.getId(), view.getId());
+			assertEquals(c.getName(), view.getName());
+			assertEquals(c.getType(), view.getType());
+			assertEquals(c.getColors(), view.getColors());
+			assertEquals(c.getPower(), view.getPower());
+			assertEquals(c.getArtist(), view.getArtist());
+			assertEquals(c.getCardImageUrl(), view.getCardImageUrl());
+		}
+		assertSame("Equal values are stored once.", table.get(0).getColors(), table.get(1).getColors());
+
+		try {
+			table.get(0).setName("Other");
+			fail("Views are read-only.");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		ComplexQuery cq = new ComplexQuery();
+		cq.addQueryElement(new QueryElement(Field.color, Operator.eq, "green"));
+		cq.addQueryElement(new QueryElement(Field.power, Operator.gte, 6));
+		assertEquals(Arrays.asList(3, 6), ids(new QueryEngine(table.asList()).query(cq)));
+	}
+
+	@Test
+	public void testMappedCardFile() throws IOException {
+		ArrayList<Card> cards = cards();
+		cards.get(0).setDescription("Flying");
+		cards.get(0).setReleasedAtEpochDay(16000);
+		cards.get(0).setManaCost("2UU");
+		File file = File.createTempFile("cards", ".mapped");
+		try {
+			MappedCardFile.write(cards, file);
+			MappedCardFile mapped = MappedCardFile.open(file);
+			assertEquals(cards.size(), mapped.size());
+
+			Card c = mapped.getCard(1);
+			assertEquals("Sphinx", c.getName());
+			assertEquals("Flying", c.getDescription());
+			assertEquals(Arrays.asList("blue"), c.getColors());
+			assertEquals(Color.BLUE.getBit(), c.getColorMask());
+			assertEquals(ManaCost.parse("2UU"), c.getParsedManaCost());
+			assertEquals(cards.get(0).getReleasedAt(), c.getReleasedAt());
+			assertEquals(Card.STR_VALUE_NOT_SET, c.getArtist());
+			assertEquals(Card.INT_VALUE_NOT_SET, mapped.getCard(4).getPower());
+			assertNull(mapped.getCard(7));
+
+			ComplexQuery cq = new ComplexQuery();
+			cq.addQueryElement(new QueryElement(Field.type, Operator.m, "creature"));
+			cq.addQueryElement(new QueryElement(Field.convertedmanacost, Operator.lt, 5));
+			assertEquals(Arrays.asList(1, 2, 3), ids(new QueryEngine(mapped.asList()).query(cq)));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testColorMask() {
+		ArrayList<Card> cards = cards();
+		Card giant = cards.get(2);
+		assertEquals(Color.mask(Color.BLUE, Color.GREEN), giant.getColorMask());
+		assertTrue(giant.hasColor(Color.GREEN));
+		assertFalse(giant.hasColor(Color.RED));
+		assertEquals(EnumSet.of(Color.BLUE, Color.GREEN), giant.getColorSet());
+		assertEquals(giant.getColorMask(), new CardTable(cards).get(2).getColorMask());
+
+		assertTrue(QueryEngine.matches(giant, new QueryElement(Field.color, Operator.eq, "Blue")));
+		assertTrue(QueryEngine.matches(giant, new QueryElement(Field.color, Operator.not, "red")));
+		assertFalse(QueryEngine.matches(giant, new QueryElement(Field.color, Operator.not, "green")));
+		assertTrue("Partial names still match the list.", QueryEngine.matches(giant, new QueryElement(Field.color, Operator.m, "gre")));
+
+		giant.setColors(new ArrayList<String>(Arrays.asList("red")));
+		assertEquals(Color.RED.getBit(), giant.getColorMask());
+	}
+
+	@Test
+	public void testManaCost() {
+		long cost = ManaCost.parse("2WW");
+		assertEquals(2, ManaCost.generic(cost));
+		assertEquals(2, ManaCost.pips(cost, Color.WHITE));
+		assertEquals(0, ManaCost.pips(cost, Color.BLUE));
+		assertEquals(Color.WHITE.getBit(), ManaCost.colorMask(cost));
+
+		cost = ManaCost.parse("{X}{10}{U}{U}{W/U}{2/B}{G/P}{C}");
+		assertEquals(10, ManaCost.generic(cost));
+		assertEquals(1, ManaCost.x(cost));
+		assertEquals(2, ManaCost.pips(cost, Color.BLUE));
+		assertEquals(2, ManaCost.coloredPips(cost));
+		assertEquals(2, ManaCost.hybrid(cost));
+		assertEquals(1, ManaCost.phyrexian(cost));
+		assertEquals(1, ManaCost.colorless(cost));
+		assertEquals(Color.ALL & ~Color.RED.getBit(), ManaCost.colorMask(cost));
+		assertFalse(ManaCost.hasUnknownSymbols(cost));
+		assertTrue(ManaCost.hasUnknownSymbols(ManaCost.parse("{Q}")));
+
+		assertEquals(0, ManaCost.parse(""));
+		assertEquals(ManaCost.NOT_SET, new Card().getParsedManaCost());
+		Card c = new Card();
+		c.setManaCost("1UU");
+		assertEquals(2, ManaCost.pips(c.getParsedManaCost(), Color.BLUE));
+		ArrayList<Card> cards = new ArrayList<Card>();
+		cards.add(c);
+		assertEquals(c.getParsedManaCost(), new CardTable(cards).get(0).getParsedManaCost());
+	}
+
+	static Format format(String name, String legality) {
+		Format f = new Format();
+		f.setName(name);
+		f.setLegality(legality);
+		return f;
+	}
+
+	@Test
+	public void testLegalityMatrix() {
+		ArrayList<Card> cards = cards();
+		cards.get(0).setFormats(Arrays.asList(format("Vintage", "Legal"), format("Modern", "Legal")));
+		cards.get(1).setFormats(Arrays.asList(format("Vintage", "Restricted"), format("Modern", "Banned")));
+		cards.get(3).setFormats(Arrays.asList(format("Vintage", "Legal")));
+		LegalityMatrix legality = new LegalityMatrix(cards);
+
+		assertEquals(Arrays.asList("Vintage", "Modern"), legality.getFormatNames());
+		int modern = legality.getFormatCode("modern");
+		int vintage = legality.getFormatCode("Vintage");
+		assertEquals(-1, legality.getFormatCode("Legacy"));
+
+		assertEquals(Legality.LEGAL, legality.getLegality(cards.get(0), modern));
+		assertEquals(Legality.BANNED, legality.getLegality(1, modern));
+		assertEquals(Legality.NOT_LEGAL, legality.getLegality(cards.get(3), modern));
+		assertEquals(Legality.NOT_LEGAL, legality.getLegality(cards.get(0), -1));
+
+		CardIndex index = new CardIndex(cards);
+		assertEquals(Arrays.asList(1, 2, 4), ids(index.getCards(legality.getPlayableCards(vintage))));
+		assertEquals(Arrays.asList(2), ids(index.getCards(legality.getCards(vintage, Legality.RESTRICTED))));
+		assertEquals(4, legality.getCards(modern, Legality.NOT_LEGAL).cardinality());
+	}
+}
@@ -0,0 +1,197 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.mtgdb.api.Card;
+import info.mtgdb.api.CardSet;
+import info.mtgdb.api.Db;
+import info.mtgdb.api.SnapshotStore;
+import info.mtgdb.api.Transport;
+
+import org.junit.Test;
+
+public class TestSnapshotStore {
+
+	static final String LOTUS = "{\"id\":1,\"name\":\"Black Lotus\",\"searchName\":\"blacklotus\","
+			+ "\"description\":\"{T}, Sacrifice Black Lotus: Add three mana of any one color.\","
+			+ "\"manaCost\":\"0\",\"convertedManaCost\":0,\"type\":\"Artifact\",\"rarity\":\"Rare\","
+			+ "\"artist\":\"Christopher Rush\",\"cardSetId\":\"AAA\",\"releasedAt\":\"1993-08-05\","
+			+ "\"rulings\":[{\"releasedAt\":\"2004-10-04\",\"rule\":\"Banned in Vintage? No, restricted.\"}],"
+			+ "\"formats\":[{\"name\":\"Vintage\",\"legality\":\"Restricted\"},{\"name\":\"Legacy\",\"legality\":\"Banned\"}]}";
+	static final String VIAL = "{\"id\":2000000000,\"name\":\"\u00c6ther Vial\",\"colors\":[\"colorless\"],"
+			+ "\"power\":-1,\"toughness\":-1000000,\"artist\":\"Christopher Rush\",\"cardSetId\":\"AAA\"}";
+	static final String SHOCK = "{\"id\":3,\"name\":\"Shock\",\"colors\":[\"red\"],\"manaCost\":\"R\","
+			+ "\"artist\":\"Christopher Rush\",\"cardSetId\":\"BBB\",\"token\":false}";
+	static final String BOLT = "{\"id\":4,\"name\":\"Lightning Bolt\",\"colors\":[\"red\"],\"cardSetId\":\"BBB\"}";
+
+	/* Serves whatever body is registered for a path under the API URL, and records the paths asked for. */
+	static Transport transport(final Map<String, String> bodies, final List<String> paths) {
+		return new Transport() {
+			public InputStream open(String url) throws IOException {
+				String path = url.substring(Db.API_URL.length());
+				paths.add(path);
+				String body = bodies.get(path);
+				if( body == null ) throw new IOException("No response for "+path);
+				return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	static String sets(String bbbCardIds) {
+		return "[{\"id\":\"AAA\",\"name\":\"Alpha\",\"total\":2,\"releasedAt\":\"1993-08-05\",\"cardIds\":[1,2000000000]},"
+				+ "{\"id\":\"BBB\",\"name\":\"Beta\",\"cardIds\":["+bbbCardIds+"]}]";
+	}
+
+	@Test
+	public void testRoundTripAndRefresh() throws IOException {
+		Map<String, String> bodies = new HashMap<String, String>();
+		bodies.put("/sets/", sets("3"));
+		bodies.put("/sets/AAA/cards/", "["+LOTUS+","+VIAL+"]");
+		bodies.put("/sets/BBB/cards/", "["+SHOCK+"]");
+		List<String> paths = new ArrayList<String>();
+
+		File file = File.createTempFile("cards", ".snapshot");
+		file.delete();
+		Transport previous = Db.getTransport();
+		Db.setTransport(transport(bodies, paths));
+		try {
+			SnapshotStore store = new SnapshotStore(file);
+			assertFalse("There is no file yet.", store.load());
+			assertEquals(2, store.refresh());
+			assertTrue(file.exists());
+
+			SnapshotStore loaded = new SnapshotStore(file);
+			assertTrue(loaded.load());
+			assertEquals(3, loaded.getCards().size());
+			assertEquals(2, loaded.getSets().size());
+
+			CardSet alpha = loaded.getSet("AAA");
+			assertEquals("Alpha", alpha.getName());
+			assertEquals(2, alpha.getTotal());
+			assertEquals(store.getSet("AAA").getReleasedAtEpochDay(), alpha.getReleasedAtEpochDay());
+			assertEquals(Arrays.asList(1, 2000000000), alpha.getCardIds());
+			assertNull(alpha.getBlock());
+
+			Card lotus = loaded.getCard(1);
+			Card original = store.getCard(1);
+			assertEquals("Black Lotus", lotus.getName());
+			assertEquals(original.getDescription(), lotus.getDescription());
+			assertEquals(original.getReleasedAtEpochDay(), lotus.getReleasedAtEpochDay());
+			assertEquals(0, lotus.getConvertedManaCost());
+			assertNull(lotus.getColors());
+			assertEquals(1, lotus.getRulings().size());
+			assertEquals("Banned in Vintage? No, restricted.", lotus.getRulings().get(0).getRule());
+			assertEquals(original.getRulings().get(0).getReleasedAtEpochDay(), lotus.getRulings().get(0).getReleasedAtEpochDay());
+			assertEquals("Legacy", lotus.getFormats().get(1).getName());
+			assertEquals("Banned", lotus.getFormats().get(1).getLegality());
+
+			/* Large and negative numbers go through the zig-zag varints. */
+			Card vial = loaded.getCard(2000000000);
+			assertEquals("\u00c6ther Vial", vial.getName());
+			assertEquals(-1, vial.getPower());
+			assertEquals(-1000000, vial.getToughness());
+			assertEquals(Arrays.asList("colorless"), vial.getColors());
+			assertEquals(original.getLoyalty(), vial.getLoyalty());
+
+			assertSame("Equal strings are read back as one.", lotus.getArtist(), loaded.getCard(3).getArtist());
+			assertEquals("The set order is kept.", "Shock", loaded.getCards().get(2).getName());
+
+			/* Only the set whose card ids changed is downloaded again. */
+			bodies.put("/sets/", sets("3,4"));
+			bodies.put("/sets/BBB/cards/", "["+SHOCK+","+BOLT+"]");
+			paths.clear();
+			assertEquals(1, loaded.refresh());
+			assertEquals(Arrays.asList("/sets/", "/sets/BBB/cards/"), paths);
+			assertSame("Unchanged sets keep their cards.", lotus, loaded.getCard(1));
+			assertEquals("Lightning Bolt", loaded.getCard(4).getName());
+
+			SnapshotStore reloaded = new SnapshotStore(file);
+			assertTrue(reloaded.load());
+			assertEquals(4, reloaded.getCards().size());
+		} finally {
+			Db.setTransport(previous);
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRejectsDamagedFiles() throws IOException {
+		Map<String, String> bodies = new HashMap<String, String>();
+		bodies.put("/sets/", sets("3"));
+		bodies.put("/sets/AAA/cards/", "["+LOTUS+","+VIAL+"]");
+		bodies.put("/sets/BBB/cards/", "["+SHOCK+"]");
+
+		File file = File.createTempFile("cards", ".snapshot");
+		File damaged = File.createTempFile("damaged", ".snapshot");
+		Transport previous = Db.getTransport();
+		Db.setTransport(transport(bodies, new ArrayList<String>()));
+		try {
+			new SnapshotStore(file).refresh();
+			byte[] bytes = Files.readAllBytes(file.toPath());
+
+			Files.write(damaged.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+			assertRejected("A truncated file is rejected.", damaged, null);
+
+			byte[] version = bytes.clone();
+			version[7] = 99;
+			Files.write(damaged.toPath(), version);
+			assertRejected("A newer version is rejected.", damaged, "version");
+
+			byte[] magic = bytes.clone();
+			magic[0] = 0;
+			Files.write(damaged.toPath(), magic);
+			assertRejected("Other files are rejected.", damaged, "Not a card snapshot");
+		} finally {
+			Db.setTransport(previous);
+			file.delete();
+			damaged.delete();
+		}
+	}
+
+	static void assertRejected(String message, File file, String reason) {
+		SnapshotStore store = new SnapshotStore(file);
+		try {
+			store.load();
+			fail(message);
+		} catch (IOException e) {
+			if( reason != null ) assertTrue(e.getMessage(), e.getMessage().contains(reason));
+		}
+		assertTrue("A failed load leaves the store empty.", store.getCards().isEmpty());
+	}
+}
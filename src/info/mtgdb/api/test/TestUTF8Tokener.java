@@ -0,0 +1,71 @@
+package info.mtgdb.api.test;
+
+/*
+The MIT License (MIT)
+
+Copyright (c) 2014 Littlepancake Software
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.UTF8Tokener;
+import org.junit.Test;
+
+public class TestUTF8Tokener {
+
+	private static final String NAME = "\u00c6ther Vial \ud83d\ude00 d\u00e9j\u00e0";
+
+	private static UTF8Tokener tokener(String json, int bufferSize) throws UnsupportedEncodingException {
+		return new UTF8Tokener(new ByteArrayInputStream(json.getBytes("UTF-8")), bufferSize);
+	}
+
+	@Test
+	public void testMatchesStringParser() throws Exception {
+		String json = "{\"name\":\""+NAME+"\", \"n\": 12, \"arr\":[1, 2.5, true, null, \"x\\\"y\\u00e9\"]}";
+		String expected = new JSONObject(json).toString();
+
+		/* Small buffers force multi-byte characters to straddle refills. */
+		for( int size = 16; size < 40; size++ ) {
+			JSONObject o = new JSONObject(tokener(json, size));
+			assertEquals("Buffer size "+size, expected, o.toString());
+			assertEquals("Buffer size "+size, NAME, o.getString("name"));
+		}
+	}
+
+	@Test
+	public void testByteOrderMarkAndArray() throws Exception {
+		JSONArray ja = new JSONArray(tokener("\ufeff[{\"a\":1},{\"b\":[]}]", UTF8Tokener.DEFAULT_BUFFER_SIZE));
+		assertEquals("Should have parsed two objects.", 2, ja.length());
+		assertEquals(1, ja.getJSONObject(0).getInt("a"));
+	}
+
+	@Test
+	public void testMalformedUtf8() {
+		byte[] bytes = { '[', '"', 'a', (byte) 0xC3, '"', ']' };
+		JSONArray ja = new JSONArray(new UTF8Tokener(new ByteArrayInputStream(bytes)));
+		assertEquals("Truncated sequence should decode to U+FFFD.", "a\ufffd", ja.getString(0));
+	}
+}
@@ -0,0 +1,435 @@
+package org.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A UTF8Tokener is a JSONTokener that reads UTF-8 bytes straight from an
+ * InputStream, without an InputStreamReader in between. Bytes are pulled into
+ * a large buffer that is reused for the life of the tokener (and across
+ * documents, see {@link #reset(InputStream)}), strings are collected in a
+ * single reusable StringBuilder, and runs of plain ASCII inside strings are
+ * copied in bulk rather than one character at a time.
+ * <p>
+ * It can be passed anywhere a JSONTokener is expected, for example to
+ * {@link JSONObject#JSONObject(JSONTokener)} or
+ * {@link JSONArray#JSONArray(JSONTokener)}. Malformed UTF-8 sequences decode
+ * to U+FFFD, and a leading byte order mark is skipped.
+ * @author JSON.org
+ * @version 2014-04-20
+ */
+public class UTF8Tokener extends JSONTokener {
+
+    /**
+     * The buffer size used when none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final byte[]        buffer;
+    private final StringBuilder builder = new StringBuilder(256);
+    private char[]              chars = new char[256];
+    private InputStream         in;
+    private int                 position;
+    private int                 limit;
+    private boolean             atStart;
+    private boolean             eof;
+    private long                index;
+    private char                pendingLow;
+    private char                previous;
+    private boolean             usePrevious;
+
+
+    /**
+     * Construct a UTF8Tokener with the default buffer size.
+     *
+     * @param in    A stream of UTF-8 encoded JSON text.
+     */
+    public UTF8Tokener(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    /**
+     * Construct a UTF8Tokener.
+     *
+     * @param in          A stream of UTF-8 encoded JSON text.
+     * @param bufferSize  The number of bytes to read from the stream at a time.
+     */
+    public UTF8Tokener(InputStream in, int bufferSize) {
+        super();
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("Buffer size too small: " +
+                    bufferSize);
+        }
+        this.buffer = new byte[bufferSize];
+        this.reset(in);
+    }
+
+
+    /**
+     * Start reading a new stream, keeping the buffers that have already been
+     * allocated. The previous stream is not closed.
+     *
+     * @param in    A stream of UTF-8 encoded JSON text.
+     */
+    public void reset(InputStream in) {
+        this.in = in;
+        this.position = 0;
+        this.limit = 0;
+        this.atStart = true;
+        this.eof = false;
+        this.index = 0;
+        this.pendingLow = 0;
+        this.previous = 0;
+        this.usePrevious = false;
+    }
+
+
+    public void back() throws JSONException {
+        if (this.usePrevious || this.index <= 0) {
+            throw new JSONException("Stepping back two steps is not supported");
+        }
+        this.index -= 1;
+        this.usePrevious = true;
+        this.eof = false;
+    }
+
+
+    public boolean end() {
+        return this.eof && !this.usePrevious;
+    }
+
+
+    public char next() throws JSONException {
+        char c;
+        if (this.usePrevious) {
+            this.usePrevious = false;
+            c = this.previous;
+        } else if (this.pendingLow != 0) {
+            c = this.pendingLow;
+            this.pendingLow = 0;
+        } else {
+            int b = this.position < this.limit
+                ? this.buffer[this.position++] & 0xff
+                : this.readByte();
+            if (b <= 0) { // End of stream
+                this.eof = true;
+                c = 0;
+            } else if (b < 0x80) {
+                c = (char) b;
+            } else {
+                c = this.decode(b);
+            }
+        }
+        this.index += 1;
+        this.previous = c;
+        return c;
+    }
+
+
+    public char nextClean() throws JSONException {
+        if (!this.usePrevious && this.pendingLow == 0) {
+            byte[] buf = this.buffer;
+            int p = this.position;
+            int end = this.limit;
+            while (p < end && buf[p] > 0 && buf[p] <= ' ') {
+                p += 1;
+            }
+            this.index += p - this.position;
+            this.position = p;
+        }
+        for (;;) {
+            char c = this.next();
+            if (c == 0 || c > ' ') {
+                return c;
+            }
+        }
+    }
+
+
+    public String nextString(char quote) throws JSONException {
+        char c;
+        StringBuilder sb = this.builder;
+        sb.setLength(0);
+        for (;;) {
+            if (!this.usePrevious && this.pendingLow == 0) {
+                this.copyAsciiRun(sb, quote);
+            }
+            c = this.next();
+            switch (c) {
+            case 0:
+            case '\n':
+            case '\r':
+                throw this.syntaxError("Unterminated string");
+            case '\\':
+                c = this.next();
+                switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'u':
+                    sb.append((char)Integer.parseInt(this.next(4), 16));
+                    break;
+                case '"':
+                case '\'':
+                case '\\':
+                case '/':
+                    sb.append(c);
+                    break;
+                default:
+                    throw this.syntaxError("Illegal escape.");
+                }
+                break;
+            default:
+                if (c == quote) {
+                    return sb.toString();
+                }
+                sb.append(c);
+            }
+        }
+    }
+
+
+    public Object nextValue() throws JSONException {
+        char c = this.nextClean();
+        String string;
+
+        switch (c) {
+            case '"':
+            case '\'':
+                return this.nextString(c);
+            case '{':
+                this.back();
+                return new JSONObject(this);
+            case '[':
+                this.back();
+                return new JSONArray(this);
+        }
+
+        StringBuilder sb = this.builder;
+        sb.setLength(0);
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            sb.append(c);
+            c = this.next();
+        }
+        this.back();
+
+        string = sb.toString().trim();
+        if ("".equals(string)) {
+            throw this.syntaxError("Missing value");
+        }
+        return JSONObject.stringToValue(string);
+    }
+
+
+    /**
+     * Skip characters until the next character is the requested character.
+     * Unlike {@link JSONTokener#skipTo(char)}, the stream can not be rewound,
+     * so if the requested character is not found the rest of the input has
+     * been consumed.
+     * @param to A character to skip to.
+     * @return The requested character, or zero if the requested character
+     * is not found.
+     */
+    public char skipTo(char to) throws JSONException {
+        char c;
+        do {
+            c = this.next();
+            if (c == 0) {
+                return c;
+            }
+        } while (c != to);
+        this.back();
+        return c;
+    }
+
+
+    /**
+     * Make a printable string of this UTF8Tokener.
+     *
+     * @return " at {index}"
+     */
+    public String toString() {
+        return " at " + this.index;
+    }
+
+
+    /**
+     * Append the printable ASCII characters at the current position, up to
+     * the first quote, backslash, control character or non-ASCII byte, and
+     * step past them. The rest of nextString takes it from there.
+     */
+    private void copyAsciiRun(StringBuilder sb, char quote) {
+        if (this.position >= this.limit && !this.fill()) {
+            return;
+        }
+        byte[] buf = this.buffer;
+        int start = this.position;
+        int end = this.limit;
+        int p = start;
+        while (p < end) {
+            byte b = buf[p];
+            if (b < ' ' || b == quote || b == '\\') { // b < ' ' includes all non-ASCII
+                break;
+            }
+            p += 1;
+        }
+        int length = p - start;
+        if (length == 0) {
+            return;
+        }
+        if (this.chars.length < length) {
+            this.chars = new char[Math.max(length, this.chars.length * 2)];
+        }
+        char[] cs = this.chars;
+        for (int i = 0; i < length; i += 1) {
+            cs[i] = (char) buf[start + i];
+        }
+        sb.append(cs, 0, length);
+        this.position = p;
+        this.index += length;
+        this.previous = cs[length - 1];
+    }
+
+
+    /**
+     * Decode the rest of a multi-byte sequence whose first byte is b.
+     */
+    private char decode(int b) throws JSONException {
+        int needed;
+        int codePoint;
+        int minimum;
+        if (b >= 0xC2 && b <= 0xDF) {
+            needed = 1;
+            codePoint = b & 0x1F;
+            minimum = 0x80;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            needed = 2;
+            codePoint = b & 0x0F;
+            minimum = 0x800;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            needed = 3;
+            codePoint = b & 0x07;
+            minimum = 0x10000;
+        } else {
+            return '\uFFFD';
+        }
+        for (int i = 0; i < needed; i += 1) {
+            int next = this.readByte();
+            if (next < 0 || (next & 0xC0) != 0x80) {
+                if (next >= 0) {
+                    this.position -= 1; // Let it start the next character.
+                }
+                return '\uFFFD';
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if (codePoint < minimum || codePoint > 0x10FFFF ||
+                (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+            return '\uFFFD';
+        }
+        if (codePoint >= 0x10000) {
+            this.pendingLow = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return (char) codePoint;
+    }
+
+
+    /**
+     * @return The next byte, or -1 at the end of the stream.
+     */
+    private int readByte() throws JSONException {
+        if (this.position >= this.limit && !this.fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++] & 0xff;
+    }
+
+
+    /**
+     * Refill the buffer from the stream.
+     * @return false at the end of the stream.
+     */
+    private boolean fill() throws JSONException {
+        if (this.in == null) {
+            return false;
+        }
+        int n;
+        try {
+            do {
+                n = this.in.read(this.buffer, 0, this.buffer.length);
+            } while (n == 0);
+        } catch (IOException exception) {
+            throw new JSONException(exception);
+        }
+        if (n < 0) {
+            return false;
+        }
+        this.position = 0;
+        this.limit = n;
+        if (this.atStart) {
+            this.atStart = false;
+            this.skipByteOrderMark();
+        }
+        return true;
+    }
+
+
+    private void skipByteOrderMark() throws JSONException {
+        while (this.limit < 3) {
+            int n;
+            try {
+                n = this.in.read(this.buffer, this.limit,
+                        this.buffer.length - this.limit);
+            } catch (IOException exception) {
+                throw new JSONException(exception);
+            }
+            if (n < 0) {
+                break;
+            }
+            this.limit += n;
+        }
+        if (this.limit >= 3 && (this.buffer[0] & 0xff) == 0xEF &&
+                (this.buffer[1] & 0xff) == 0xBB &&
+                (this.buffer[2] & 0xff) == 0xBF) {
+            this.position = 3;
+        }
+    }
+}